@@ -0,0 +1,52 @@
+package com.convocatis.app.utils
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * [MarkupRenderer] renders the bundled corpus exactly like the HtmlCompat pipeline
+ *
+ * Run with ./gradlew connectedAndroidTest - render times of both are logged under
+ * tag MarkupRendererVerifierTest.
+ */
+@RunWith(AndroidJUnit4::class)
+class MarkupRendererVerifierTest {
+
+    companion object {
+        private const val TAG = "MarkupRendererVerifierTest"
+    }
+
+    @Test
+    fun corpusRendersLikeHtmlCompat() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val parser = ImprovedXmlTextParser(context)
+        val texts = parser.parseTextsFromAsset("conv_texts_lang_2.xml", "lv") +
+            parser.parseTextsFromAsset("conv_texts_lang_34.xml", "en") +
+            AdvertisementTexts.entries
+
+        // First run warms up both renderers (class loading, JIT), the second is timed
+        val pages = MarkupRendererVerifier.corpusPages(texts)
+        MarkupRendererVerifier.verify(pages)
+        val result = MarkupRendererVerifier.verify(pages)
+        Log.i(TAG, "${texts.size} texts, $result")
+
+        assertEquals(result.differences.take(5).joinToString("\n\n"), 0, result.mismatches)
+    }
+
+    @Test
+    fun entitiesAndLineEnds() {
+        val cases = listOf(
+            "Tu dzīvo manī\r\nAlleluja!",
+            "a\rb",
+            "&amp; &amp x &eacute;t&eacute; &Omega;&hearts; &notin; &unknown; &",
+            "&#233;&#xE9;&#x1F54A; &#150;",
+            "<a href=\"?a=1&amp;b=2\">link</a>"
+        )
+        val result = MarkupRendererVerifier.verify(cases)
+        assertEquals(result.differences.joinToString("\n\n"), 0, result.mismatches)
+    }
+}
@@ -3,10 +3,13 @@ package com.convocatis.app
 import android.app.Application
 import android.content.Context
 import android.content.SharedPreferences
+import android.content.pm.ApplicationInfo
 import android.util.Log
 import com.convocatis.app.database.AppDatabase
+import com.convocatis.app.repository.TextRepository
 import com.convocatis.app.utils.DataImporter
 import com.convocatis.app.utils.FavoritesManager
+import com.convocatis.app.utils.MarkupRendererVerifier
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
@@ -20,6 +23,9 @@ class ConvocatisApplication : Application() {
     lateinit var preferences: SharedPreferences
         private set
 
+    lateinit var textRepository: TextRepository
+        private set
+
     private val applicationScope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
 
     override fun onCreate() {
@@ -27,6 +33,7 @@ class ConvocatisApplication : Application() {
         instance = this
 
         database = AppDatabase.getDatabase(this)
+        textRepository = TextRepository(database.textDao())
         preferences = getSharedPreferences("convocatis_prefs", Context.MODE_PRIVATE)
 
         // Import initial data from XML files on first launch
@@ -45,6 +52,11 @@ class ConvocatisApplication : Application() {
                 try {
                     importer.importAllData()
                     Log.d(TAG, "Initial data import successful!")
+
+                    // Debug builds: check the page renderer against HtmlCompat on the new corpus
+                    if (applicationInfo.flags and ApplicationInfo.FLAG_DEBUGGABLE != 0) {
+                        MarkupRendererVerifier.verifyCorpus(database.textDao())
+                    }
                 } catch (e: Exception) {
                     Log.e(TAG, "Failed to import initial data", e)
                 }
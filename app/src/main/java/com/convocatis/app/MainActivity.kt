@@ -1,29 +1,47 @@
 package com.convocatis.app
 
+import android.content.Intent
+import android.database.MatrixCursor
 import android.os.Bundle
+import android.os.Process
+import android.os.SystemClock
+import android.provider.BaseColumns
 import android.view.Menu
 import android.view.MenuItem
 import androidx.activity.OnBackPressedCallback
 import androidx.appcompat.app.AppCompatActivity
 import androidx.appcompat.widget.SearchView
+import androidx.cursoradapter.widget.SimpleCursorAdapter
 import androidx.fragment.app.Fragment
+import androidx.lifecycle.lifecycleScope
 import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.ui.dialogs.ProgramsDialog
 import com.convocatis.app.ui.fragments.TextReadingFragment
 import com.convocatis.app.ui.fragments.TextsFragment
 import androidx.activity.enableEdgeToEdge
 import androidx.core.view.WindowCompat
 import android.util.Log
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.launch
 
 class MainActivity : AppCompatActivity() {
 
     private var currentFragment: Fragment? = null
     var onSearchTermChangedListener: ((String) -> Unit)? = null
+    var onSuggestionSelectedListener: ((Long) -> Unit)? = null
+
+    private var searchView: SearchView? = null
 
     private var sortMenuItem: MenuItem? = null
     private var favoritesMenuItem: MenuItem? = null
 
+    // Opened by a deep link - time to its first reading page is reported once
+    private var awaitingFirstPage = false
+    private var createdAt = 0L
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
+        createdAt = SystemClock.uptimeMillis()
         Log.d("MainActivity", "onCreate started")
         enableEdgeToEdge()
         WindowCompat.setDecorFitsSystemWindows(window, false)
@@ -39,6 +57,9 @@ class MainActivity : AppCompatActivity() {
             override fun handleOnBackPressed() {
                 if (supportFragmentManager.backStackEntryCount > 0) {
                     supportFragmentManager.popBackStack()
+                } else if (currentFragment is TextReadingFragment) {
+                    // Text was opened by a deep link - the list is only built now
+                    showTextsFragment()
                 } else {
                     finish()
                 }
@@ -60,8 +81,54 @@ class MainActivity : AppCompatActivity() {
         }
 
         if (savedInstanceState == null) {
-            showTextsFragment()
+            val rid = deepLinkRid(intent)
+            if (rid != null) showDeepLinkedText(rid) else showTextsFragment()
+        }
+    }
+
+    override fun onNewIntent(intent: Intent) {
+        super.onNewIntent(intent)
+        setIntent(intent)
+        deepLinkRid(intent)?.let { rid -> showTextReadingFragment(rid, "") }
+    }
+
+    /**
+     * Open a text straight from a deep link, shortcut or notification
+     * Only the reader is created - the list (and its index) is built if the user goes back.
+     * The text is queried right away, so opening the database and loading overlap with
+     * creating the reader's views - the reader's own load joins this query
+     * (TextRepository shares queries in flight) or finds the text cached.
+     */
+    private fun showDeepLinkedText(rid: Long) {
+        awaitingFirstPage = true
+        val repository = ConvocatisApplication.getInstance().textRepository
+        lifecycleScope.launch {
+            try {
+                repository.getText(rid)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Error loading deep linked text $rid", e)
+            }
         }
+        showFragment(TextReadingFragment.newInstance(rid, ""), getString(R.string.app_name))
+    }
+
+    /**
+     * Called by the reader when its start page is on screen
+     * For a deep link this completes startup - reported to the system and logged
+     */
+    fun onFirstPageShown() {
+        if (!awaitingFirstPage) return
+        awaitingFirstPage = false
+        reportFullyDrawn()
+
+        val now = SystemClock.uptimeMillis()
+        Log.i(
+            TAG,
+            "Deep link first page: ${now - createdAt} ms after onCreate, " +
+                "${now - Process.getStartUptimeMillis()} ms after process start"
+        )
     }
 
     private fun showFragment(fragment: Fragment, title: String) {
@@ -81,10 +148,20 @@ class MainActivity : AppCompatActivity() {
         showFragment(TextsFragment(), getString(R.string.app_name))
     }
 
-    fun showTextReadingFragment(textEntity: TextEntity) {
-        val fragment = TextReadingFragment.newInstance(textEntity)
+    /**
+     * @param sequence reading order of the list the text was opened from (RIDs)
+     */
+    fun showTextReadingFragment(
+        rid: Long,
+        languageCode: String,
+        searchTerm: String? = null,
+        sequence: LongArray? = null
+    ) {
+        val fragment = TextReadingFragment.newInstance(rid, languageCode, searchTerm, sequence)
         currentFragment = fragment
+        // Reordering allowed on every reader transaction - see showNeighbourText
         supportFragmentManager.beginTransaction()
+            .setReorderingAllowed(true)
             .replace(R.id.fragment_container, fragment)
             .addToBackStack(null)
             .commit()
@@ -95,6 +172,42 @@ class MainActivity : AppCompatActivity() {
         invalidateOptionsMenu()
     }
 
+    /**
+     * Read a program as one continuous text
+     */
+    fun showProgram(programId: Long) {
+        val fragment = TextReadingFragment.newProgramInstance(programId)
+        currentFragment = fragment
+        supportFragmentManager.beginTransaction()
+            .setReorderingAllowed(true)
+            .replace(R.id.fragment_container, fragment)
+            .addToBackStack(null)
+            .commit()
+
+        supportActionBar?.setDisplayHomeAsUpEnabled(true)
+        invalidateOptionsMenu()
+    }
+
+    /**
+     * Switch the reader to another text of its reading order - takes the place of the
+     * current text on the back stack, so back still returns to the list
+     */
+    fun showNeighbourText(rid: Long, languageCode: String, searchTerm: String?, sequence: LongArray) {
+        val fragment = TextReadingFragment.newInstance(rid, languageCode, searchTerm, sequence)
+        currentFragment = fragment
+        // The pop and the new reader run as one batch. The popped reader transaction was
+        // committed with reordering allowed too, so both are optimized together and the
+        // list isn't recreated in between.
+        supportFragmentManager.popBackStack()
+        supportFragmentManager.beginTransaction()
+            .setReorderingAllowed(true)
+            .replace(R.id.fragment_container, fragment)
+            .addToBackStack(null)
+            .commit()
+
+        invalidateOptionsMenu()
+    }
+
     override fun onCreateOptionsMenu(menu: Menu?): Boolean {
         menuInflater.inflate(R.menu.main_menu, menu)
 
@@ -104,10 +217,18 @@ class MainActivity : AppCompatActivity() {
         menu?.findItem(R.id.action_category_filter)?.isVisible = !isReadingFragment
         menu?.findItem(R.id.action_sort_toggle)?.isVisible = !isReadingFragment
         menu?.findItem(R.id.action_filter_favorites)?.isVisible = !isReadingFragment
+        menu?.findItem(R.id.action_programs)?.isVisible = !isReadingFragment
+
+        // Table of contents only for texts with headers
+        menu?.findItem(R.id.action_table_of_contents)?.isVisible =
+            (currentFragment as? TextReadingFragment)?.hasTableOfContents() == true
 
         val searchItem = menu?.findItem(R.id.action_search)
         val searchView = searchItem?.actionView as? SearchView
 
+        this.searchView = searchView
+        setupSearchSuggestions(searchView)
+
         searchView?.setOnQueryTextListener(object : SearchView.OnQueryTextListener {
             override fun onQueryTextSubmit(query: String?): Boolean {
                 query?.let { onSearchTermChangedListener?.invoke(it) }
@@ -130,8 +251,57 @@ class MainActivity : AppCompatActivity() {
         return true
     }
 
+    /**
+     * Title suggestions below the search field - shown from the first typed character
+     */
+    private fun setupSearchSuggestions(searchView: SearchView?) {
+        if (searchView == null) return
+
+        searchView.suggestionsAdapter = SimpleCursorAdapter(
+            this,
+            android.R.layout.simple_list_item_1,
+            null,
+            arrayOf(SUGGESTION_TITLE),
+            intArrayOf(android.R.id.text1),
+            0
+        )
+        searchView.findViewById<SearchView.SearchAutoComplete>(androidx.appcompat.R.id.search_src_text)
+            ?.threshold = 1
+
+        searchView.setOnSuggestionListener(object : SearchView.OnSuggestionListener {
+            override fun onSuggestionSelect(position: Int): Boolean = false
+
+            override fun onSuggestionClick(position: Int): Boolean {
+                val cursor = searchView.suggestionsAdapter.cursor
+                if (cursor != null && cursor.moveToPosition(position)) {
+                    onSuggestionSelectedListener?.invoke(cursor.getLong(0))
+                }
+                return true
+            }
+        })
+    }
+
+    /**
+     * Replace title suggestions (from TextsFragment)
+     */
+    fun showSearchSuggestions(suggestions: List<TextEntity>) {
+        val adapter = searchView?.suggestionsAdapter ?: return
+        val cursor = MatrixCursor(arrayOf(BaseColumns._ID, SUGGESTION_TITLE))
+        suggestions.forEach { text -> cursor.addRow(arrayOf<Any>(text.rid, text.title)) }
+        adapter.changeCursor(cursor)
+    }
+
     override fun onOptionsItemSelected(item: MenuItem): Boolean {
         return when (item.itemId) {
+            R.id.action_table_of_contents -> {
+                val readingFragment = currentFragment as? TextReadingFragment
+                readingFragment?.showTableOfContents()
+                true
+            }
+            R.id.action_programs -> {
+                ProgramsDialog.newInstance().show(supportFragmentManager, "ProgramsDialog")
+                true
+            }
             R.id.action_category_filter -> {
                 val textsFragment = currentFragment as? TextsFragment
                 textsFragment?.showCategoryFilterDropdown()
@@ -178,4 +348,28 @@ class MainActivity : AppCompatActivity() {
         onBackPressedDispatcher.onBackPressed()
         return true
     }
+
+    companion object {
+        private const val TAG = "MainActivity"
+        private const val SUGGESTION_TITLE = "title"
+        private const val DEEP_LINK_SCHEME = "convocatis"
+        private const val DEEP_LINK_HOST = "text"
+
+        /**
+         * Text to open for shortcuts and notifications (alternative to a convocatis://text/{rid} link)
+         */
+        const val EXTRA_RID = "com.convocatis.app.extra.RID"
+
+        /**
+         * RID of the text an intent opens, null if it doesn't open one
+         */
+        fun deepLinkRid(intent: Intent?): Long? {
+            if (intent == null) return null
+            if (intent.hasExtra(EXTRA_RID)) return intent.getLongExtra(EXTRA_RID, -1).takeIf { it >= 0 }
+
+            val data = intent.data ?: return null
+            if (data.scheme != DEEP_LINK_SCHEME || data.host != DEEP_LINK_HOST) return null
+            return data.pathSegments.firstOrNull()?.toLongOrNull()
+        }
+    }
 }
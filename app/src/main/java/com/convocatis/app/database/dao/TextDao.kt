@@ -3,15 +3,28 @@ package com.convocatis.app.database.dao
 import androidx.lifecycle.LiveData
 import androidx.room.*
 import com.convocatis.app.database.entity.TextEntity
+import kotlinx.coroutines.flow.Flow
 
 @Dao
 interface TextDao {
     @Query("SELECT * FROM texts ORDER BY title ASC")
     fun getAllTexts(): LiveData<List<TextEntity>>
 
+    @Query("SELECT * FROM texts ORDER BY title ASC")
+    fun observeAllTexts(): Flow<List<TextEntity>>
+
+    @Query("SELECT * FROM texts ORDER BY title ASC")
+    suspend fun getAllTextsList(): List<TextEntity>
+
     @Query("SELECT * FROM texts WHERE rid = :rid")
     suspend fun getTextByRid(rid: Long): TextEntity?
 
+    @Query("SELECT * FROM texts WHERE rid IN (:rids)")
+    suspend fun getTextsByRids(rids: List<Long>): List<TextEntity>
+
+    @Query("SELECT rid FROM texts WHERE rid IN (:rids)")
+    suspend fun getExistingRids(rids: List<Long>): List<Long>
+
     @Query("SELECT * FROM texts WHERE title LIKE '%' || :searchTerm || '%' OR rawContent LIKE '%' || :searchTerm || '%'")
     fun searchTexts(searchTerm: String): LiveData<List<TextEntity>>
 
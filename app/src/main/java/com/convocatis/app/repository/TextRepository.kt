@@ -0,0 +1,111 @@
+package com.convocatis.app.repository
+
+import android.util.LruCache
+import com.convocatis.app.database.dao.TextDao
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.utils.AdvertisementTexts
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+
+/**
+ * Texts by RID, with an in-memory cache in front of Room
+ *
+ * Screens pass RIDs around instead of whole TextEntity objects and load them here:
+ * reopening a text, or a text included by many others (%RID), is a cache hit.
+ * The cache is bounded by content size. Advertisement entries (negative RIDs) are
+ * built in and never reach the database. Callers asking for the same uncached text at
+ * once share one query.
+ *
+ * Database errors are passed on to the caller.
+ */
+class TextRepository(private val textDao: TextDao) {
+
+    companion object {
+        private const val CACHE_MAX_CHARS = 2 * 1024 * 1024  // Sum of title + content lengths
+    }
+
+    private val cache = object : LruCache<Long, TextEntity>(CACHE_MAX_CHARS) {
+        override fun sizeOf(key: Long, value: TextEntity): Int = maxOf(1, value.title.length + value.rawContent.length)
+    }
+
+    // Queries in flight - not cancelled with a caller, others may be waiting for them
+    private val loadScope = CoroutineScope(SupervisorJob())
+    private val loading = HashMap<Long, Deferred<TextEntity?>>()  // RID -> query
+
+    /**
+     * Text if it is cached (or built in), without touching the database
+     */
+    fun getCached(rid: Long): TextEntity? {
+        return AdvertisementTexts.entries.firstOrNull { it.rid == rid } ?: cache.get(rid)
+    }
+
+    /**
+     * Text with RID, null if there is none - joins a query for it already in flight
+     */
+    suspend fun getText(rid: Long): TextEntity? {
+        getCached(rid)?.let { return it }
+
+        val load = synchronized(loading) {
+            loading.getOrPut(rid) {
+                // Started once registered, so it can't finish (and unregister) before that
+                loadScope.async(start = CoroutineStart.LAZY) {
+                    try {
+                        textDao.getTextByRid(rid)?.also { cache.put(rid, it) }
+                    } finally {
+                        synchronized(loading) { loading.remove(rid) }
+                    }
+                }
+            }
+        }
+        load.start()
+        return load.await()
+    }
+
+    /**
+     * Texts with RIDs (missing ones are left out), one query for the uncached ones
+     */
+    suspend fun getTexts(rids: Collection<Long>): List<TextEntity> {
+        val found = ArrayList<TextEntity>(rids.size)
+        val missing = ArrayList<Long>()
+        rids.forEach { rid ->
+            val cached = getCached(rid)
+            if (cached != null) found.add(cached) else missing.add(rid)
+        }
+
+        if (missing.isNotEmpty()) {
+            textDao.getTextsByRids(missing).forEach { text ->
+                cache.put(text.rid, text)
+                found.add(text)
+            }
+        }
+        return found
+    }
+
+    /**
+     * Which of the RIDs exist (no content loaded for uncached ones)
+     */
+    suspend fun getExistingRids(rids: Collection<Long>): Set<Long> {
+        val existing = HashSet<Long>()
+        val unknown = ArrayList<Long>()
+        rids.forEach { rid -> if (getCached(rid) != null) existing.add(rid) else unknown.add(rid) }
+        if (unknown.isNotEmpty()) existing.addAll(textDao.getExistingRids(unknown))
+        return existing
+    }
+
+    /**
+     * Cache a text that was already loaded with its content (e.g. by the text list)
+     */
+    fun put(text: TextEntity) {
+        if (text.rid >= 0) cache.put(text.rid, text)
+    }
+
+    /**
+     * Drop all cached texts (texts were re-imported)
+     */
+    fun invalidate() {
+        cache.evictAll()
+    }
+}
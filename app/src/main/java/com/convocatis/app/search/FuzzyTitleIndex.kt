@@ -0,0 +1,180 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.utils.TextNormalizer
+import java.util.BitSet
+
+/**
+ * Typo-tolerant title search over normalized (lowercase, diacritics removed) title words
+ *
+ * Distinct title words are kept in a BK-tree (Levenshtein distance), so a lookup
+ * only visits words whose distance to the query word can still be within bounds
+ * instead of comparing against every title. Each word has a posting list of slots.
+ *
+ * A title matches when every query word matches one of its words within the allowed
+ * distance (the last, possibly unfinished, query word may also be a word prefix).
+ * Results are ordered by total distance, then title order.
+ *
+ * Immutable once built, safe to use from any thread.
+ */
+class FuzzyTitleIndex internal constructor(
+    slots: BitSet,
+    titles: Array<String>,
+    private val ranks: IntArray
+) {
+
+    companion object {
+        private const val MIN_WORD_LENGTH = 2
+
+        private val WORD_SEPARATOR = Regex("[^\\p{L}\\p{N}]+")
+
+        /**
+         * Allowed typos - none for short words, where one edit changes the word completely
+         */
+        private fun maxDistance(word: String): Int = when {
+            word.length <= 3 -> 0
+            word.length <= 6 -> 1
+            else -> 2
+        }
+
+        private fun words(text: String): List<String> {
+            return text.split(WORD_SEPARATOR).filter { it.length >= MIN_WORD_LENGTH }
+        }
+
+        /**
+         * Levenshtein distance, or bound + 1 as soon as it must exceed bound
+         */
+        private fun distance(a: String, b: String, bound: Int): Int {
+            if (Math.abs(a.length - b.length) > bound) return bound + 1
+
+            var previous = IntArray(b.length + 1) { it }
+            var current = IntArray(b.length + 1)
+            for (i in 1..a.length) {
+                current[0] = i
+                var rowMin = current[0]
+                for (j in 1..b.length) {
+                    val cost = if (a[i - 1] == b[j - 1]) 0 else 1
+                    current[j] = minOf(previous[j] + 1, current[j - 1] + 1, previous[j - 1] + cost)
+                    if (current[j] < rowMin) rowMin = current[j]
+                }
+                if (rowMin > bound) return bound + 1
+                val swap = previous
+                previous = current
+                current = swap
+            }
+            return previous[b.length]
+        }
+    }
+
+    /**
+     * BK-tree node - children keyed by their distance to this word
+     */
+    private class Node(val word: String) {
+        var children: HashMap<Int, Node>? = null
+    }
+
+    private val postings = HashMap<String, IntArray>()
+    private val vocabulary: Array<String>
+    private val root: Node?
+
+    init {
+        val wordSlots = HashMap<String, MutableList<Int>>()
+        var slot = slots.nextSetBit(0)
+        while (slot >= 0) {
+            words(titles[slot]).toSet().forEach { word ->
+                wordSlots.getOrPut(word) { ArrayList() }.add(slot)
+            }
+            slot = slots.nextSetBit(slot + 1)
+        }
+        wordSlots.forEach { (word, list) -> postings[word] = list.toIntArray() }
+
+        vocabulary = wordSlots.keys.toTypedArray().also { it.sort() }
+
+        var tree: Node? = null
+        vocabulary.forEach { word ->
+            val node = Node(word)
+            if (tree == null) tree = node else insert(tree!!, node)
+        }
+        root = tree
+    }
+
+    private fun insert(root: Node, node: Node) {
+        var parent = root
+        while (true) {
+            val d = distance(parent.word, node.word, Int.MAX_VALUE - 1)
+            val children = parent.children ?: HashMap<Int, Node>().also { parent.children = it }
+            val child = children[d]
+            if (child == null) {
+                children[d] = node
+                return
+            }
+            parent = child
+        }
+    }
+
+    /**
+     * Slots of titles matching query with typos, best first
+     * Only slots in [allowed] are returned
+     */
+    fun search(query: String, allowed: BitSet): IntArray {
+        val queryWords = words(TextNormalizer.normalizeString(query.lowercase()))
+        if (queryWords.isEmpty() || root == null) return IntArray(0)
+
+        // Total distance per slot, narrowed word by word
+        var totals: HashMap<Int, Int>? = null
+        queryWords.forEachIndexed { index, queryWord ->
+            val best = HashMap<Int, Int>()
+            val addWord = { word: String, d: Int ->
+                postings[word]?.forEach { slot ->
+                    val known = best[slot]
+                    if (known == null || d < known) best[slot] = d
+                }
+            }
+
+            collectWithin(queryWord, maxDistance(queryWord), addWord)
+            if (index == queryWords.lastIndex) collectPrefixed(queryWord, addWord)
+
+            val previous = totals
+            totals = if (previous == null) {
+                best
+            } else {
+                HashMap<Int, Int>().apply {
+                    previous.forEach { (slot, total) -> best[slot]?.let { put(slot, total + it) } }
+                }
+            }
+            if (totals!!.isEmpty()) return IntArray(0)
+        }
+
+        return totals!!.entries
+            .filter { allowed.get(it.key) }
+            .sortedWith(compareBy({ it.value }, { ranks[it.key] }))
+            .map { it.key }
+            .toIntArray()
+    }
+
+    /**
+     * Words within bound of query word (BK-tree walk - triangle inequality prunes subtrees)
+     */
+    private fun collectWithin(queryWord: String, bound: Int, add: (String, Int) -> Unit) {
+        val stack = ArrayDeque<Node>()
+        root?.let { stack.addLast(it) }
+        while (stack.isNotEmpty()) {
+            val node = stack.removeLast()
+            val d = distance(node.word, queryWord, Int.MAX_VALUE - 1)
+            if (d <= bound) add(node.word, d)
+            node.children?.forEach { (childDistance, child) ->
+                if (childDistance >= d - bound && childDistance <= d + bound) stack.addLast(child)
+            }
+        }
+    }
+
+    /**
+     * Words starting with the (unfinished) query word - distance 0
+     */
+    private fun collectPrefixed(prefix: String, add: (String, Int) -> Unit) {
+        var i = vocabulary.binarySearch(prefix).let { if (it < 0) -it - 1 else it }
+        while (i < vocabulary.size && vocabulary[i].startsWith(prefix)) {
+            add(vocabulary[i], 0)
+            i++
+        }
+    }
+}
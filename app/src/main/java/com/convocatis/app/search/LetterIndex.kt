@@ -0,0 +1,81 @@
+package com.convocatis.app.search
+
+import android.widget.SectionIndexer
+
+/**
+ * Letter -> first row table of one sorted result list
+ *
+ * Built once per result list, so jumping to a letter and finding the letter of a
+ * row are lookups. Sections are the letters A-Z present in the list, in row order -
+ * the SectionIndexer side drives the list's letter rail (LetterRailView).
+ */
+class LetterIndex internal constructor(
+    internal val letters: CharArray,
+    internal val rows: IntArray
+) : SectionIndexer {
+
+    companion object {
+        val EMPTY = LetterIndex(CharArray(0), IntArray(0))
+
+        /**
+         * Build from sorted rows
+         * Rows before [firstRow] (e.g. pinned favorites) are only used for letters
+         * that don't appear after it
+         */
+        fun build(sorted: IntArray, letterOf: (Int) -> Char, firstRow: Int = 0): LetterIndex {
+            val firstRows = IntArray(26) { -1 }
+            var found = 0
+
+            for (row in firstRow until sorted.size) {
+                val letter = letterOf(sorted[row])
+                if (letter !in 'A'..'Z' || firstRows[letter - 'A'] >= 0) continue
+                firstRows[letter - 'A'] = row
+                if (++found == 26) break
+            }
+            for (row in 0 until minOf(firstRow, sorted.size)) {
+                val letter = letterOf(sorted[row])
+                if (letter !in 'A'..'Z' || firstRows[letter - 'A'] >= 0) continue
+                firstRows[letter - 'A'] = row
+            }
+
+            // Sections in row order (descending sort lists Z first)
+            val sections = (0 until 26).filter { firstRows[it] >= 0 }.sortedBy { firstRows[it] }
+            return LetterIndex(
+                CharArray(sections.size) { 'A' + sections[it] },
+                IntArray(sections.size) { firstRows[sections[it]] }
+            )
+        }
+    }
+
+    /**
+     * First row of letter, -1 if no row starts with it
+     */
+    fun rowOf(letter: Char): Int {
+        val section = letters.indexOf(letter)
+        return if (section >= 0) rows[section] else -1
+    }
+
+    /**
+     * Letter of the section containing row, null before the first section
+     */
+    fun letterAt(row: Int): Char? {
+        if (letters.isEmpty() || row < rows[0]) return null
+        return letters[getSectionForPosition(row)]
+    }
+
+    // Created once, the rail compares sections on every list state
+    private val sectionLabels: Array<Any> by lazy { Array<Any>(letters.size) { letters[it].toString() } }
+
+    override fun getSections(): Array<Any> = sectionLabels
+
+    override fun getPositionForSection(sectionIndex: Int): Int {
+        if (rows.isEmpty()) return 0
+        return rows[sectionIndex.coerceIn(0, rows.size - 1)]
+    }
+
+    override fun getSectionForPosition(position: Int): Int {
+        // Last section starting at or before position
+        val found = rows.binarySearch(position)
+        return if (found >= 0) found else maxOf(0, -found - 2)
+    }
+}
@@ -0,0 +1,83 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.utils.ReadingModel
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.withContext
+
+/**
+ * Match offsets of one text's reader pages
+ *
+ * The visible text of every page (markup stripped, referenced texts resolved by
+ * [ReadingModel]) is concatenated once, with the start offset of each page. Finding
+ * a search term is then a substring scan plus a binary search from match offset to
+ * page position - no page has to be rendered to know where the matches are.
+ * Runs of identical pages (N^ repetitions) are indexed once, at their first page,
+ * so match jumps don't step through every repetition.
+ *
+ * Immutable once built, safe to use from any thread.
+ */
+class PageTextIndex private constructor(
+    private val text: String,
+    private val starts: IntArray,     // Chunk -> offset in text
+    private val positions: IntArray   // Chunk -> page position
+) {
+
+    companion object {
+        private const val PAGE_SEPARATOR = '\u0000'
+
+        /**
+         * Index all pages of model (loads all referenced texts, runs on Dispatchers.Default)
+         */
+        suspend fun build(model: ReadingModel): PageTextIndex = withContext(Dispatchers.Default) {
+            model.materializeAll()
+
+            val text = StringBuilder()
+            val starts = ArrayList<Int>()
+            val positions = ArrayList<Int>()
+            var previous: String? = null
+            for (position in model.pages.indices) {
+                if (position % 32 == 0) ensureActive()
+                val content = model.contentAt(position)
+                if (content == previous) continue
+                previous = content
+
+                starts.add(text.length)
+                positions.add(position)
+                PlainText.appendWords(text, PlainText.strip(content))
+                text.append(PAGE_SEPARATOR)
+            }
+
+            PageTextIndex(text.toString(), starts.toIntArray(), positions.toIntArray())
+        }
+
+        /**
+         * Term with whitespace collapsed like page text
+         */
+        private fun normalizeTerm(term: String): String = term.trim().split(Regex("\\s+")).joinToString(" ")
+    }
+
+    /**
+     * Page positions containing term (ignoring case), ascending, at most one per page
+     */
+    fun findPages(term: String): IntArray {
+        val needle = normalizeTerm(term)
+        if (needle.isEmpty()) return IntArray(0)
+
+        val pages = ArrayList<Int>()
+        var offset = text.indexOf(needle, 0, ignoreCase = true)
+        while (offset >= 0) {
+            val chunk = chunkOf(offset)
+            pages.add(positions[chunk])
+            // Continue with the next page - one hit per page is enough for jumping
+            val next = if (chunk + 1 < starts.size) starts[chunk + 1] else text.length
+            offset = text.indexOf(needle, next, ignoreCase = true)
+        }
+        return pages.toIntArray()
+    }
+
+    private fun chunkOf(offset: Int): Int {
+        val index = starts.binarySearch(offset)
+        return if (index >= 0) index else -index - 2
+    }
+}
@@ -0,0 +1,49 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.utils.MarkupRenderer
+
+/**
+ * Visible text of page markup, without rendering it
+ */
+internal object PlainText {
+
+    /**
+     * Text without HTML tags (each tag becomes a space, so words on both sides stay
+     * apart) and with entities decoded
+     */
+    fun strip(markup: String): String {
+        if (markup.indexOf('<') == -1) return MarkupRenderer.decodeEntities(markup)
+
+        val sb = StringBuilder(markup.length)
+        var i = 0
+        while (i < markup.length) {
+            val c = markup[i]
+            val next = markup.getOrNull(i + 1)
+            if (c == '<' && next != null && (next.isLetter() || next == '/' || next == '!')) {
+                val end = markup.indexOf('>', i + 1)
+                if (end != -1) {
+                    sb.append(' ')
+                    i = end + 1
+                    continue
+                }
+            }
+            sb.append(c)
+            i++
+        }
+        return MarkupRenderer.decodeEntities(sb.toString())
+    }
+
+    /**
+     * Append text with whitespace collapsed to single spaces, ending with a space
+     */
+    fun appendWords(out: StringBuilder, text: String) {
+        for (c in text) {
+            if (c.isWhitespace() || c == '\u00A0') {
+                if (out.isNotEmpty() && out[out.length - 1] != ' ') out.append(' ')
+            } else {
+                out.append(c)
+            }
+        }
+        if (out.isNotEmpty() && out[out.length - 1] != ' ') out.append(' ')
+    }
+}
@@ -0,0 +1,164 @@
+package com.convocatis.app.search
+
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import java.util.BitSet
+
+/**
+ * Relevance of search hits for one search term, BM25 style
+ *
+ * A hit scores for each place the term appears in:
+ * - title - strongest signal, more if the title starts with the term
+ * - headers (>>...<<) - term frequency, saturating
+ * - body - term frequency, saturating and normalized by text length, so one
+ *   mention in a long liturgy weighs less than the same mention in a short prayer
+ * The search term is a single phrase, so there is no per-term IDF to weigh.
+ *
+ * [top] returns the best k hits with a bounded heap - hits below the current page
+ * are never sorted.
+ */
+class RelevanceScores private constructor(
+    private val scores: FloatArray,   // Slot -> score
+    private val ranks: (Int) -> Int   // Title order for equal scores
+) {
+
+    companion object {
+        private const val TITLE_WEIGHT = 6f
+        private const val TITLE_START_BONUS = 2f
+        private const val HEADER_WEIGHT = 2f
+        private const val BODY_WEIGHT = 1f
+        private const val K1 = 1.2f   // Term frequency saturation
+        private const val B = 0.75f   // Length normalization strength
+
+        /**
+         * Score every slot in hits
+         */
+        suspend fun compute(
+            index: TextListIndex,
+            searchTexts: SearchTextIndex,
+            hits: BitSet,
+            searchTerm: String
+        ): RelevanceScores {
+            val term = searchTerm.trim()
+            val scores = FloatArray(hits.length())
+            val averageLength = searchTexts.averageLength
+
+            var scored = 0
+            var slot = hits.nextSetBit(0)
+            while (slot >= 0) {
+                if (scored++ % 32 == 0) currentCoroutineContext().ensureActive()
+
+                val title = index.entity(slot).title
+                var score = 0f
+                if (title.contains(term, ignoreCase = true)) {
+                    score += TITLE_WEIGHT
+                    if (title.startsWith(term, ignoreCase = true)) score += TITLE_START_BONUS
+                }
+
+                val headerFrequency = countOccurrences(searchTexts.headerText(slot), term)
+                if (headerFrequency > 0) {
+                    score += HEADER_WEIGHT * headerFrequency * (K1 + 1) / (headerFrequency + K1)
+                }
+
+                val body = searchTexts.plainText(slot)
+                val bodyFrequency = countOccurrences(body, term)
+                if (body != null && bodyFrequency > 0) {
+                    val lengthNorm = 1 - B + B * body.length / averageLength
+                    score += BODY_WEIGHT * bodyFrequency * (K1 + 1) / (bodyFrequency + K1 * lengthNorm)
+                }
+
+                scores[slot] = score
+                slot = hits.nextSetBit(slot + 1)
+            }
+            return RelevanceScores(scores, index::rank)
+        }
+
+        private fun countOccurrences(text: String?, term: String): Int {
+            if (text == null || term.isEmpty()) return 0
+            var count = 0
+            var offset = text.indexOf(term, 0, ignoreCase = true)
+            while (offset >= 0) {
+                count++
+                offset = text.indexOf(term, offset + term.length, ignoreCase = true)
+            }
+            return count
+        }
+    }
+
+    /**
+     * Best [k] slots of hits, best first ([pinned] slots before all others, e.g. favorites)
+     * Bounded min-heap: O(n log k), only the k kept slots are sorted
+     */
+    fun top(hits: BitSet, k: Int, pinned: BitSet? = null): IntArray {
+        if (k <= 0) return IntArray(0)
+
+        // Heap root is the worst kept slot
+        val heap = IntArray(minOf(k, hits.cardinality()))
+        var size = 0
+        var slot = hits.nextSetBit(0)
+        while (slot >= 0) {
+            if (size < heap.size) {
+                heap[size] = slot
+                siftUp(heap, size++, pinned)
+            } else if (better(slot, heap[0], pinned)) {
+                heap[0] = slot
+                siftDown(heap, size, pinned)
+            }
+            slot = hits.nextSetBit(slot + 1)
+        }
+
+        // Pop worst first, fill from the end
+        val result = IntArray(size)
+        while (size > 0) {
+            result[size - 1] = heap[0]
+            heap[0] = heap[--size]
+            siftDown(heap, size, pinned)
+        }
+        return result
+    }
+
+    /**
+     * True if a ranks before b: pinned, higher score, then title order, then slot
+     */
+    private fun better(a: Int, b: Int, pinned: BitSet?): Boolean {
+        if (pinned != null) {
+            val pinnedA = pinned.get(a)
+            if (pinnedA != pinned.get(b)) return pinnedA
+        }
+        if (scores[a] != scores[b]) return scores[a] > scores[b]
+        val rankA = ranks(a)
+        val rankB = ranks(b)
+        if (rankA != rankB) return rankA < rankB
+        return a < b
+    }
+
+    private fun siftUp(heap: IntArray, from: Int, pinned: BitSet?) {
+        var child = from
+        while (child > 0) {
+            val parent = (child - 1) / 2
+            if (!better(heap[parent], heap[child], pinned)) break
+            swap(heap, parent, child)
+            child = parent
+        }
+    }
+
+    private fun siftDown(heap: IntArray, size: Int, pinned: BitSet?) {
+        var parent = 0
+        while (true) {
+            val left = parent * 2 + 1
+            if (left >= size) return
+            val right = left + 1
+            // Worse child moves up - the root stays the worst
+            val worse = if (right < size && better(heap[left], heap[right], pinned)) right else left
+            if (!better(heap[parent], heap[worse], pinned)) return
+            swap(heap, parent, worse)
+            parent = worse
+        }
+    }
+
+    private fun swap(heap: IntArray, i: Int, j: Int) {
+        val value = heap[i]
+        heap[i] = heap[j]
+        heap[j] = value
+    }
+}
@@ -0,0 +1,51 @@
+package com.convocatis.app.search
+
+import android.util.LruCache
+import java.util.BitSet
+
+/**
+ * Recent search results of the process, keyed by normalized search term and category filter
+ *
+ * Shared by all text lists, so a search repeated after coming back to the list, or
+ * in a new list screen, skips matching. Results are slot sets - slots are assigned
+ * in RID order, so they stay valid while the texts stay the same. Any change of
+ * the imported texts bumps the dataset version (DataImporter), which drops all
+ * entries computed for an older version.
+ */
+object SearchResultCache {
+
+    private const val MAX_ENTRIES = 32
+
+    private val WHITESPACE = Regex("\\s+")
+
+    data class Key(val searchTerm: String, val categoryType: Int?, val categoryCode: String?)
+
+    /**
+     * Matching slots (category applied) and typo-tolerant title matches, for a list of [slotCount] slots
+     * Shared - don't modify
+     */
+    class Result(val hits: BitSet, val fuzzy: IntArray, val slotCount: Int)
+
+    private val cache = LruCache<Key, Result>(MAX_ENTRIES)
+    private var version = -1
+
+    /**
+     * Search term as matched and cached: trimmed, lowercase, single spaces
+     */
+    fun normalize(searchTerm: String): String = searchTerm.trim().lowercase().replace(WHITESPACE, " ")
+
+    @Synchronized
+    fun get(datasetVersion: Int, key: Key, slotCount: Int): Result? {
+        if (datasetVersion != version) return null
+        return cache.get(key)?.takeIf { it.slotCount == slotCount }
+    }
+
+    @Synchronized
+    fun put(datasetVersion: Int, key: Key, result: Result) {
+        if (datasetVersion != version) {
+            cache.evictAll()
+            version = datasetVersion
+        }
+        cache.put(key, result)
+    }
+}
@@ -0,0 +1,232 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.database.entity.TextEntity
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import java.util.BitSet
+
+/**
+ * Searchable plain text of every imported text
+ *
+ * Content is matched against what the reader shows, not against the stored markup:
+ * - page breaks, repetitions (N^) and header markers (>> <<) are dropped
+ * - HTML tags are dropped with their attributes (no hits in href/src URLs), entities decoded
+ * - %RID includes are replaced by the plain text of the included text (nested up to MAX_DEPTH)
+ * So a phrase of an included prayer finds every text including it. Plain texts are
+ * kept with collapsed whitespace - a query is a substring check (ignoring case), nothing
+ * is expanded at query time. The same text gives search result snippets.
+ *
+ * Every text records the RIDs it includes. [build] reuses the plain text of the
+ * previous index unless the text, or a text it includes (directly or nested), was
+ * changed, added or removed since.
+ *
+ * Immutable once built, safe to use from any thread.
+ */
+class SearchTextIndex private constructor(
+    private val plainTexts: Array<String?>,
+    private val headerTexts: Array<String?>,
+    private val entries: Map<Long, Entry>,
+    private val includedBy: Map<Long, LongArray>
+) {
+
+    /**
+     * Plain text of one text, its own headers (>>...<<, for ranking) and the RIDs
+     * it includes (also ones not imported yet)
+     */
+    private class Entry(val content: String, val plainText: String, val headerText: String, val includes: LongArray)
+
+    companion object {
+        private const val MAX_DEPTH = 5
+
+        private val SEGMENT_BREAK = Regex("""\||>>|<<""")
+        private val REPETITION = Regex("""^\s*\d+\^""")
+        private val REFERENCE = Regex("""^\s*%(\d+)""")
+
+        /**
+         * Build for texts in [slots], reusing plain texts of [previous] that are still valid
+         */
+        suspend fun build(slots: BitSet, entities: Array<TextEntity>, previous: SearchTextIndex?): SearchTextIndex {
+            val texts = HashMap<Long, TextEntity>()
+            var slot = slots.nextSetBit(0)
+            while (slot >= 0) {
+                texts[entities[slot].rid] = entities[slot]
+                slot = slots.nextSetBit(slot + 1)
+            }
+
+            // Texts changed since previous index, then everything including them
+            val known = previous?.entries ?: emptyMap()
+            val changed = ArrayDeque<Long>()
+            texts.values.forEach { text ->
+                if (known[text.rid]?.content != text.rawContent) changed.addLast(text.rid)
+            }
+            known.keys.forEach { rid -> if (!texts.containsKey(rid)) changed.addLast(rid) }
+
+            val stale = HashSet<Long>()
+            while (changed.isNotEmpty()) {
+                val rid = changed.removeFirst()
+                if (!stale.add(rid)) continue
+                previous?.includedBy?.get(rid)?.forEach { changed.addLast(it) }
+            }
+
+            val builder = Builder(texts, known, stale)
+            val plainTexts = arrayOfNulls<String>(entities.size)
+            val headerTexts = arrayOfNulls<String>(entities.size)
+            var built = 0
+            slot = slots.nextSetBit(0)
+            while (slot >= 0) {
+                if (built++ % 32 == 0) currentCoroutineContext().ensureActive()
+                val entry = builder.entry(entities[slot].rid, HashSet())
+                plainTexts[slot] = entry?.plainText
+                headerTexts[slot] = entry?.headerText
+                slot = slots.nextSetBit(slot + 1)
+            }
+
+            // Reverse include map, so the next build knows whom a change affects
+            val includers = HashMap<Long, MutableList<Long>>()
+            builder.entries.forEach { (rid, entry) ->
+                entry.includes.forEach { included -> includers.getOrPut(included) { ArrayList() }.add(rid) }
+            }
+            val includedBy = HashMap<Long, LongArray>(includers.size)
+            includers.forEach { (rid, list) -> includedBy[rid] = list.toLongArray() }
+
+            return SearchTextIndex(plainTexts, headerTexts, builder.entries, includedBy)
+        }
+    }
+
+    private class Builder(
+        private val texts: Map<Long, TextEntity>,
+        private val known: Map<Long, Entry>,
+        private val stale: Set<Long>
+    ) {
+        val entries = HashMap<Long, Entry>(texts.size)
+
+        /**
+         * Entry of text with RID, null if there is no such text
+         * [visiting] holds the include chain leading here (cycle and depth guard)
+         */
+        fun entry(rid: Long, visiting: MutableSet<Long>): Entry? {
+            entries[rid]?.let { return it }
+            val text = texts[rid] ?: return null
+
+            val entry = known[rid]?.takeIf { rid !in stale } ?: expand(text, visiting)
+            entries[rid] = entry
+            return entry
+        }
+
+        private fun expand(text: TextEntity, visiting: MutableSet<Long>): Entry {
+            visiting.add(text.rid)
+            val includes = ArrayList<Long>()
+            val plain = StringBuilder()
+            val headers = StringBuilder()
+
+            // Segments between markup delimiters - the one after ">>" is a header
+            val raw = text.rawContent
+            var segmentStart = 0
+            var isHeader = false
+            val delimiters = SEGMENT_BREAK.findAll(raw).iterator()
+            while (segmentStart <= raw.length) {
+                val delimiter = if (delimiters.hasNext()) delimiters.next() else null
+                val segmentEnd = delimiter?.range?.first ?: raw.length
+                val segment = raw.substring(segmentStart, segmentEnd)
+                val segmentIsHeader = isHeader
+                segmentStart = (delimiter?.range?.last ?: raw.length) + 1
+                isHeader = delimiter?.value == ">>"
+
+                var body = REPETITION.find(segment)?.let { segment.substring(it.range.last + 1) } ?: segment
+
+                val reference = REFERENCE.find(body)
+                if (reference != null) {
+                    val rid = reference.groupValues[1].toLongOrNull()
+                    if (rid != null) {
+                        includes.add(rid)
+                        if (rid !in visiting && visiting.size <= MAX_DEPTH) {
+                            entry(rid, visiting)?.let { PlainText.appendWords(plain, it.plainText) }
+                        }
+                    }
+                    // Header references may be followed by text ("<<%50\nText")
+                    body = body.substring(reference.range.last + 1)
+                }
+
+                val stripped = PlainText.strip(body)
+                PlainText.appendWords(plain, stripped)
+                if (segmentIsHeader) PlainText.appendWords(headers, stripped)
+            }
+
+            visiting.remove(text.rid)
+            return Entry(text.rawContent, plain.toString(), headers.toString(), includes.toLongArray())
+        }
+    }
+
+    /**
+     * Text around the first match of a search term, for result rows
+     */
+    data class Snippet(val text: String, val matchStart: Int, val matchEnd: Int)
+
+    /**
+     * True if plain text of slot contains term (ignoring case)
+     * Advertisement entries have no plain text
+     */
+    fun contains(slot: Int, term: String): Boolean {
+        return plainTexts[slot]?.contains(term, ignoreCase = true) ?: false
+    }
+
+    /**
+     * Offset of the first match of term in plain text of slot, -1 if none
+     */
+    fun matchOffset(slot: Int, term: String): Int {
+        if (term.isEmpty()) return -1
+        return plainTexts[slot]?.indexOf(term, ignoreCase = true) ?: -1
+    }
+
+    /**
+     * Snippet of about [radius] characters on both sides of the first match, cut at
+     * word boundaries, null if the plain text doesn't contain term (e.g. title match)
+     */
+    fun snippet(slot: Int, term: String, radius: Int): Snippet? {
+        val plain = plainTexts[slot] ?: return null
+        val offset = matchOffset(slot, term)
+        if (offset < 0) return null
+
+        var start = maxOf(0, offset - radius)
+        if (start > 0) {
+            val space = plain.indexOf(' ', start)
+            if (space in start until offset) start = space + 1
+        }
+        var end = minOf(plain.length, offset + term.length + radius)
+        if (end < plain.length) {
+            val space = plain.lastIndexOf(' ', end)
+            if (space >= offset + term.length) end = space
+        }
+
+        val prefix = if (start > 0) "…" else ""
+        val suffix = if (end < plain.length) "…" else ""
+        val text = prefix + plain.substring(start, end).trimEnd() + suffix
+        val matchStart = prefix.length + offset - start
+        return Snippet(text, matchStart, minOf(matchStart + term.length, text.length))
+    }
+
+    /**
+     * Plain text of slot, null for advertisement entries
+     */
+    fun plainText(slot: Int): String? = plainTexts[slot]
+
+    /**
+     * Plain text of the headers of slot, null for advertisement entries
+     */
+    fun headerText(slot: Int): String? = headerTexts[slot]
+
+    /**
+     * Average plain text length (length normalization of relevance scores)
+     */
+    val averageLength: Float by lazy {
+        var total = 0L
+        var count = 0
+        plainTexts.forEach { text ->
+            if (text != null) {
+                total += text.length
+                count++
+            }
+        }
+        if (count > 0) total.toFloat() / count else 1f
+    }
+}
@@ -0,0 +1,100 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.utils.TextTypesParser
+import java.util.BitSet
+
+/**
+ * Facet bitsets over the slots of a [TextListIndex]
+ *
+ * One bitset per category type, category code, language and letter, so a filter
+ * combination is an intersection and a facet count is a popcount. Only imported
+ * texts are in the facets - advertisement entries never match a filter.
+ *
+ * Returned bitsets are copies, callers may modify them.
+ */
+class TextFacets internal constructor(
+    private val texts: BitSet,
+    private val types: Map<Int, BitSet>,
+    private val codes: Map<String, BitSet>,
+    private val languages: Map<String, BitSet>,
+    private val letters: Map<Char, BitSet>
+) {
+
+    /**
+     * Builder, slots are added in any order
+     */
+    internal class Builder {
+        private val texts = BitSet()
+        private val types = HashMap<Int, BitSet>()
+        private val codes = HashMap<String, BitSet>()
+        private val languages = HashMap<String, BitSet>()
+        private val letters = HashMap<Char, BitSet>()
+
+        fun add(slot: Int, categoryType: Int?, categoryCode: String?, languageCode: String, letter: Char) {
+            texts.set(slot)
+            categoryType?.let { types.getOrPut(it) { BitSet() }.set(slot) }
+            if (categoryCode != null) {
+                // Whole code and each part of comma-separated codes (e.g., "21,22,1")
+                codes.getOrPut(categoryCode) { BitSet() }.set(slot)
+                categoryCode.split(",").forEach { code ->
+                    codes.getOrPut(code.trim()) { BitSet() }.set(slot)
+                }
+            }
+            languages.getOrPut(languageCode) { BitSet() }.set(slot)
+            letters.getOrPut(letter) { BitSet() }.set(slot)
+        }
+
+        fun build() = TextFacets(texts, types, codes, languages, letters)
+    }
+
+    /**
+     * All imported texts
+     */
+    fun all(): BitSet = texts.clone() as BitSet
+
+    /**
+     * Texts matching category filter (hierarchical: Type and/or Code)
+     */
+    fun category(filter: TextTypesParser.CategoryFilter): BitSet {
+        val type = filter.type ?: return all()
+        val bits = copyOf(types[type])
+        filter.code?.let { bits.and(codes[it] ?: EMPTY) }
+        return bits
+    }
+
+    /**
+     * Number of texts in category type, optionally narrowed to a code
+     */
+    fun categoryCount(type: Int, code: String? = null): Int {
+        return category(TextTypesParser.CategoryFilter(type, code, "")).cardinality()
+    }
+
+    /**
+     * Texts in language ("lv", "en")
+     */
+    fun language(languageCode: String): BitSet = copyOf(languages[languageCode])
+
+    /**
+     * Texts whose normalized first letter is one of letters
+     */
+    fun letters(letters: Collection<Char>): BitSet {
+        val bits = BitSet()
+        letters.forEach { letter -> this.letters[letter]?.let { bits.or(it) } }
+        return bits
+    }
+
+    /**
+     * Number of texts within [slots] starting with letter
+     */
+    fun letterCount(letter: Char, slots: BitSet): Int {
+        val bits = copyOf(letters[letter])
+        bits.and(slots)
+        return bits.cardinality()
+    }
+
+    private fun copyOf(bits: BitSet?): BitSet = bits?.clone() as BitSet? ?: BitSet()
+
+    private companion object {
+        val EMPTY = BitSet()
+    }
+}
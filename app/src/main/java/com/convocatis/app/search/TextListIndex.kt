@@ -0,0 +1,197 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.utils.AdvertisementTexts
+import com.convocatis.app.utils.TextNormalizer
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import java.util.BitSet
+
+/**
+ * Sort and alphabet keys for every text of one text list (plus advertisement entries)
+ *
+ * Every text gets a slot (its position in RID order). Keys are held in primitive
+ * arrays indexed by slot:
+ * - sort rank - position in ascending order of (normalized title, lowercase title),
+ *   equal titles share a rank, so sorting compares ints instead of strings
+ * - letter - normalized uppercase first letter used for alphabet groups
+ * Filters work on slot bitsets ([facets]), lists on slot arrays - texts are only
+ * looked up for the rows actually shown.
+ *
+ * Unicode normalization only happens in [build], and only for titles the previous
+ * index didn't have - a refresh with unchanged titles normalizes nothing.
+ */
+class TextListIndex private constructor(
+    val source: List<TextEntity>,
+    private val entities: Array<TextEntity>,
+    private val rids: LongArray,
+    private val ranks: IntArray,
+    private val letters: CharArray,
+    private val normalizedTitles: Array<String>,
+    private val titleKeys: Map<String, TitleKey>,
+    val facets: TextFacets,
+    private var previousSearchTexts: SearchTextIndex?
+) {
+
+    /**
+     * Normalized keys of one title
+     */
+    private class TitleKey(val normalizedTitle: String, val lowercaseTitle: String, val letter: Char)
+
+    companion object {
+
+        /**
+         * Build index for texts, reusing normalized keys of [previous] for known titles
+         */
+        suspend fun build(texts: List<TextEntity>, previous: TextListIndex?): TextListIndex {
+            val entries = AdvertisementTexts.entries + texts
+            val knownKeys = previous?.titleKeys ?: emptyMap()
+
+            // Normalized keys per distinct title
+            val titleKeys = HashMap<String, TitleKey>(entries.size)
+            entries.forEachIndexed { index, text ->
+                if (index % 64 == 0) currentCoroutineContext().ensureActive()
+                if (titleKeys.containsKey(text.title)) return@forEachIndexed
+                titleKeys[text.title] = knownKeys[text.title] ?: createKey(text.title)
+            }
+
+            // Slots ordered by RID (last entry wins for duplicate RIDs, like a map)
+            val byRid = entries.associateBy { it.rid }
+            val rids = byRid.keys.toLongArray().also { it.sort() }
+            val entities = Array(rids.size) { byRid.getValue(rids[it]) }
+            val keys = Array(rids.size) { titleKeys.getValue(entities[it].title) }
+
+            currentCoroutineContext().ensureActive()
+
+            // Rank slots by (normalized, lowercase) title - the only string comparisons
+            val order = (rids.indices).sortedWith(compareBy(
+                { keys[it].normalizedTitle },  // Primary: normalized title
+                { keys[it].lowercaseTitle }    // Secondary: original title (for same base letter)
+            ))
+            val ranks = IntArray(rids.size)
+            var rank = 0
+            order.forEachIndexed { position, slot ->
+                if (position > 0) {
+                    val before = keys[order[position - 1]]
+                    if (before.normalizedTitle != keys[slot].normalizedTitle ||
+                        before.lowercaseTitle != keys[slot].lowercaseTitle
+                    ) {
+                        rank = position
+                    }
+                }
+                ranks[slot] = rank
+            }
+
+            val letters = CharArray(rids.size) { keys[it].letter }
+            val normalizedTitles = Array(rids.size) { keys[it].normalizedTitle }
+
+            // Facets for imported texts only
+            val facets = TextFacets.Builder()
+            texts.forEach { text ->
+                val slot = rids.binarySearch(text.rid)
+                if (entities[slot] === text) {
+                    facets.add(slot, text.categoryType, text.categoryCode, text.languageCode, letters[slot])
+                }
+            }
+
+            return TextListIndex(
+                texts, entities, rids, ranks, letters, normalizedTitles, titleKeys, facets.build(),
+                previous?.builtSearchTexts
+            )
+        }
+
+        private fun createKey(title: String): TitleKey {
+            val lowercase = title.lowercase()
+            val letter = title.firstOrNull()?.let { TextNormalizer.normalizeChar(it).uppercaseChar() } ?: ' '
+            return TitleKey(TextNormalizer.normalizeString(lowercase), lowercase, letter)
+        }
+    }
+
+    fun entity(slot: Int): TextEntity = entities[slot]
+
+    /**
+     * Number of slots (texts plus advertisement entries)
+     */
+    val size: Int
+        get() = rids.size
+
+    /**
+     * Slot of text with RID, negative if not in this list
+     */
+    fun slotOf(rid: Long): Int = rids.binarySearch(rid)
+
+    /**
+     * Slots of RIDs in this list (e.g. favorites)
+     */
+    fun slotsOf(rids: Collection<Long>): BitSet {
+        val bits = BitSet()
+        rids.forEach { rid ->
+            val slot = slotOf(rid)
+            if (slot >= 0) bits.set(slot)
+        }
+        return bits
+    }
+
+    /**
+     * Title prefix lookup (autocomplete), built on first use
+     */
+    val titlePrefixes: TitlePrefixIndex by lazy {
+        TitlePrefixIndex(facets.all(), normalizedTitles, ranks)
+    }
+
+    /**
+     * Typo-tolerant title search, built on first use
+     */
+    val fuzzyTitles: FuzzyTitleIndex by lazy {
+        FuzzyTitleIndex(facets.all(), normalizedTitles, ranks)
+    }
+
+    @Volatile
+    private var builtSearchTexts: SearchTextIndex? = null
+
+    /**
+     * Reference-resolved plain text of every imported text, built on first search
+     * Keeps the previous list's plain texts only until then (no chain of old indexes)
+     */
+    suspend fun searchTexts(): SearchTextIndex {
+        builtSearchTexts?.let { return it }
+        return SearchTextIndex.build(facets.all(), entities, previousSearchTexts).also {
+            builtSearchTexts = it
+            previousSearchTexts = null
+        }
+    }
+
+    /**
+     * Plain texts if a search already built them, for work that must not wait (snippets)
+     */
+    val searchTextsIfBuilt: SearchTextIndex?
+        get() = builtSearchTexts
+
+    /**
+     * Normalized uppercase first letter of title
+     */
+    fun letter(slot: Int): Char = letters[slot]
+
+    /**
+     * Position of title in ascending title order (equal titles share a rank)
+     */
+    fun rank(slot: Int): Int = ranks[slot]
+
+    /**
+     * Sort slots by title rank, [pinned] slots first (e.g. favorites), RID order for equal titles
+     */
+    fun sort(slots: BitSet, ascending: Boolean, pinned: BitSet? = null): IntArray {
+        // Pin flag and rank in the high half, slot in the low half - one primitive sort
+        val packed = LongArray(slots.cardinality())
+        var i = 0
+        var slot = slots.nextSetBit(0)
+        while (slot >= 0) {
+            val rank = if (ascending) ranks[slot] else ranks.size - 1 - ranks[slot]
+            val unpinned = if (pinned != null && !pinned.get(slot)) 1L else 0L
+            packed[i++] = (unpinned shl 62) or (rank.toLong() shl 32) or slot.toLong()
+            slot = slots.nextSetBit(slot + 1)
+        }
+        packed.sort()
+        return IntArray(packed.size) { (packed[it] and 0xFFFFFFFFL).toInt() }
+    }
+}
@@ -0,0 +1,167 @@
+package com.convocatis.app.search
+
+import android.util.LruCache
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.util.BitSet
+
+/**
+ * Search term matching over the slots of a [TextListIndex]
+ *
+ * Recent results are kept in a small LRU keyed by search term:
+ * - repeating a query (e.g. backspacing "Sveik" -> "Svei") is a cache hit
+ * - a query that extends a cached one ("Svei" -> "Sveik") only scans the cached
+ *   hits, since every text containing "Sveik" also contains "Svei"
+ * So each keystroke scans fewer texts as the query gets more specific. Category
+ * and other filters are facet intersections on top of the result, so they don't
+ * need to be part of the key.
+ *
+ * Terms of 3+ characters are first narrowed by the [TrigramIndex], so only texts
+ * containing all of the term's trigrams are scanned. The import writes the index to
+ * [trigramFile]; a file of the current [datasetVersion] is used as it is.
+ *
+ * Not thread-safe - meant to be called from a single pipeline (see TextListViewModel).
+ */
+class TextSearchEngine(
+    private val trigramFile: File,
+    private val datasetVersion: () -> Int,
+    private val scope: CoroutineScope
+) {
+
+    companion object {
+        private const val CACHE_SIZE = 16
+    }
+
+    private val cache = LruCache<String, BitSet>(CACHE_SIZE)
+
+    // Cached results are only valid for the index they were computed from
+    private var source: TextListIndex? = null
+
+    @Volatile
+    private var trigrams: TrigramIndex? = null
+    private var trigramsSource: SearchTextIndex? = null
+    private val writeMutex = Mutex()
+
+    /**
+     * Slots of imported texts whose title or plain text contains search term (ignoring case)
+     * Content matches include text pulled in by %RID includes, not markup (see [SearchTextIndex])
+     * The returned bitset is shared with the cache - don't modify it
+     */
+    suspend fun search(index: TextListIndex, searchTerm: String): BitSet {
+        if (index !== source) {
+            cache.evictAll()
+            source = index
+        }
+
+        val key = searchTerm.lowercase()
+        cache.get(key)?.let { return it }
+
+        // Narrowest cached result this query refines, otherwise all texts
+        val candidates = refinementBase(key) ?: index.facets.all()
+
+        val result = if (searchTerm.isEmpty()) {
+            candidates
+        } else {
+            val searchTexts = index.searchTexts()
+            val narrowed = trigramsFor(index, searchTexts).candidates(searchTerm)?.let { rids ->
+                val slots = BitSet()
+                rids.forEach { rid -> index.slotOf(rid).let { if (it >= 0) slots.set(it) } }
+                slots.and(candidates)
+                slots
+            } ?: candidates
+
+            val hits = BitSet()
+            var checked = 0
+            var slot = narrowed.nextSetBit(0)
+            while (slot >= 0) {
+                if (checked++ % 32 == 0) currentCoroutineContext().ensureActive()
+                val text = index.entity(slot)
+                if (text.title.contains(searchTerm, ignoreCase = true) ||
+                    searchTexts.contains(slot, searchTerm)
+                ) {
+                    hits.set(slot)
+                }
+                slot = narrowed.nextSetBit(slot + 1)
+            }
+            hits
+        }
+
+        cache.put(key, result)
+        return result
+    }
+
+    /**
+     * Trigram index matching the texts of index
+     *
+     * The file written by the import is trusted when it is of the current dataset version
+     * (and has as many texts) - nothing is hashed. Only if it is missing or outdated (e.g.
+     * the import couldn't write it) the texts are indexed here, updating the changed ones
+     * only, and the result is written back in the background.
+     */
+    private suspend fun trigramsFor(index: TextListIndex, searchTexts: SearchTextIndex): TrigramIndex {
+        trigrams?.let { if (trigramsSource === searchTexts) return it }
+
+        val version = datasetVersion()
+        val slots = index.facets.all()
+        if (trigrams?.datasetVersion != version) {
+            withContext(Dispatchers.IO) { TrigramIndex.read(trigramFile) }?.let { trigrams = it }
+        }
+        trigrams?.let {
+            if (it.datasetVersion == version && it.size == slots.cardinality()) {
+                trigramsSource = searchTexts
+                return it
+            }
+        }
+
+        val rids = LongArray(slots.cardinality())
+        val titles = Array(rids.size) { "" }
+        val bodies = Array(rids.size) { "" }
+        var i = 0
+        var slot = slots.nextSetBit(0)
+        while (slot >= 0) {
+            // Slots are in RID order, so RIDs are ascending
+            rids[i] = index.entity(slot).rid
+            titles[i] = index.entity(slot).title
+            bodies[i] = searchTexts.plainText(slot) ?: ""
+            i++
+            slot = slots.nextSetBit(slot + 1)
+        }
+
+        val previous = trigrams
+        val updated = TrigramIndex.update(previous, rids, titles, bodies, version)
+        trigrams = updated
+        trigramsSource = searchTexts
+
+        if (updated !== previous) {
+            scope.launch(Dispatchers.IO) {
+                // Writes may finish out of order - only the latest index is written
+                writeMutex.withLock { if (trigrams === updated) updated.write(trigramFile) }
+            }
+        }
+        return updated
+    }
+
+    /**
+     * Smallest cached result whose search term is contained in the new one
+     */
+    private fun refinementBase(searchTerm: String): BitSet? {
+        var best: BitSet? = null
+        var bestCount = Int.MAX_VALUE
+        for ((cachedTerm, hits) in cache.snapshot()) {
+            if (!searchTerm.contains(cachedTerm)) continue
+            val count = hits.cardinality()
+            if (count < bestCount) {
+                best = hits
+                bestCount = count
+            }
+        }
+        return best
+    }
+}
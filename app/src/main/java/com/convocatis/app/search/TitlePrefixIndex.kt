@@ -0,0 +1,119 @@
+package com.convocatis.app.search
+
+import com.convocatis.app.utils.TextNormalizer
+import java.util.BitSet
+
+/**
+ * Prefix lookup over normalized (lowercase, diacritics removed) titles
+ *
+ * Every word start of every title is one entry - (slot, offset) packed into a long
+ * and sorted by the title text from that offset. This is a flattened trie: all
+ * titles with a word sequence starting with the query form one contiguous range,
+ * found by two binary searches. "sveic" finds "Sveicināta, Marija" and
+ * "Esi sveicināta", "sveicinata mar" finds the first one only.
+ *
+ * Immutable once built, safe to use from any thread.
+ */
+class TitlePrefixIndex internal constructor(
+    slots: BitSet,
+    private val titles: Array<String>,
+    private val ranks: IntArray
+) {
+
+    companion object {
+        private fun isWordChar(char: Char) = char.isLetterOrDigit()
+    }
+
+    private val entries: LongArray
+
+    init {
+        val starts = ArrayList<Long>()
+        var slot = slots.nextSetBit(0)
+        while (slot >= 0) {
+            val title = titles[slot]
+            for (offset in title.indices) {
+                if (isWordChar(title[offset]) && (offset == 0 || !isWordChar(title[offset - 1]))) {
+                    starts.add((slot.toLong() shl 32) or offset.toLong())
+                }
+            }
+            slot = slots.nextSetBit(slot + 1)
+        }
+
+        entries = starts.toLongArray()
+        val sorted = entries.sortedWith { a, b -> compareSuffixes(a, b) }
+        sorted.forEachIndexed { i, entry -> entries[i] = entry }
+    }
+
+    /**
+     * Up to [limit] slots of titles containing a word sequence starting with query
+     * Titles starting with it come first, then by title order
+     */
+    fun suggest(query: String, limit: Int): List<Int> {
+        val prefix = TextNormalizer.normalizeString(query.trim().lowercase())
+        if (prefix.isEmpty()) return emptyList()
+
+        val from = lowerBound(prefix)
+        val matches = LinkedHashMap<Int, Boolean>()  // slot -> title starts with prefix
+        var i = from
+        while (i < entries.size && startsWith(entries[i], prefix)) {
+            val slot = slotOf(entries[i])
+            val atStart = offsetOf(entries[i]) == 0
+            matches[slot] = (matches[slot] ?: false) || atStart
+            i++
+        }
+
+        return matches.entries
+            .sortedWith(compareBy({ !it.value }, { ranks[it.key] }))
+            .take(limit)
+            .map { it.key }
+    }
+
+    private fun slotOf(entry: Long) = (entry ushr 32).toInt()
+
+    private fun offsetOf(entry: Long) = (entry and 0xFFFFFFFFL).toInt()
+
+    private fun compareSuffixes(a: Long, b: Long): Int {
+        val titleA = titles[slotOf(a)]
+        val titleB = titles[slotOf(b)]
+        var i = offsetOf(a)
+        var j = offsetOf(b)
+        while (i < titleA.length && j < titleB.length) {
+            val diff = titleA[i].compareTo(titleB[j])
+            if (diff != 0) return diff
+            i++
+            j++
+        }
+        return (titleA.length - i) - (titleB.length - j)
+    }
+
+    private fun startsWith(entry: Long, prefix: String): Boolean {
+        return titles[slotOf(entry)].startsWith(prefix, offsetOf(entry))
+    }
+
+    /**
+     * First entry whose text is >= prefix
+     */
+    private fun lowerBound(prefix: String): Int {
+        var low = 0
+        var high = entries.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (compareToPrefix(entries[mid], prefix) < 0) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    private fun compareToPrefix(entry: Long, prefix: String): Int {
+        val title = titles[slotOf(entry)]
+        var i = offsetOf(entry)
+        var j = 0
+        while (i < title.length && j < prefix.length) {
+            val diff = title[i].compareTo(prefix[j])
+            if (diff != 0) return diff
+            i++
+            j++
+        }
+        // Entry shorter than prefix sorts before it, otherwise it starts with the prefix
+        return if (j < prefix.length) -1 else 0
+    }
+}
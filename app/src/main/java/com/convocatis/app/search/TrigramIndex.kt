@@ -0,0 +1,323 @@
+package com.convocatis.app.search
+
+import android.content.Context
+import android.util.AtomicFile
+import android.util.Log
+import com.convocatis.app.database.entity.TextEntity
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.withContext
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileNotFoundException
+import java.util.BitSet
+
+/**
+ * Trigram posting index over case-folded title + plain text of every imported text
+ *
+ * Every 3-character sequence of a text is a posting key. A text containing the
+ * search term contains all of the term's trigrams, so intersecting their posting
+ * lists gives a small candidate set - only those are checked with a substring scan.
+ * Works for fragments inside words ("slavēt" in "paslavēts"), unlike word tokens.
+ *
+ * Texts are identified by RID and carry a 64-bit hash of the indexed text: [update]
+ * only re-extracts trigrams of texts that are new or changed since the previous index
+ * and drops removed ones. The import updates the index file next to the database
+ * ([updateFile]) and tags it with its dataset version, so searches trust a file of
+ * the current version as it is - nothing is hashed or indexed at search time.
+ *
+ * Immutable once built, safe to use from any thread.
+ */
+class TrigramIndex private constructor(
+    val datasetVersion: Int,                      // DataImporter.datasetVersion of the indexed texts
+    private val rids: LongArray,                  // Doc -> RID, ascending
+    private val hashes: LongArray,                // Doc -> hash of indexed text
+    private val postings: HashMap<Long, IntArray> // Trigram -> docs, ascending
+) {
+
+    companion object {
+        private const val TAG = "TrigramIndex"
+        private const val FORMAT_VERSION = 2
+        private const val FILE_NAME = "convocatis_trigrams.bin"
+
+        private const val FNV_OFFSET = -0x340d631b7bdddcdbL  // 0xcbf29ce484222325
+        private const val FNV_PRIME = 0x100000001b3L
+
+        /**
+         * Index file, next to the texts database
+         */
+        fun file(context: Context): File = context.getDatabasePath(FILE_NAME)
+
+        /**
+         * Case folding used for indexing and queries (one char -> one char)
+         */
+        private fun fold(char: Char): Char = char.uppercaseChar().lowercaseChar()
+
+        /**
+         * 64-bit FNV-1a of title and body - a collision (a changed text keeping its stale
+         * postings) is practically impossible, unlike with String.hashCode
+         */
+        private fun hash(title: String, body: String): Long {
+            var hash = FNV_OFFSET
+            for (c in title) hash = (hash xor c.code.toLong()) * FNV_PRIME
+            hash = (hash xor '\n'.code.toLong()) * FNV_PRIME
+            for (c in body) hash = (hash xor c.code.toLong()) * FNV_PRIME
+            return hash
+        }
+
+        /**
+         * Distinct trigrams of text, three 16-bit chars packed into a long, ascending
+         */
+        private fun trigrams(text: String): LongArray {
+            if (text.length < 3) return LongArray(0)
+
+            val grams = LongArray(text.length - 2)
+            var a = fold(text[0]).code.toLong()
+            var b = fold(text[1]).code.toLong()
+            for (i in 2 until text.length) {
+                val c = fold(text[i]).code.toLong()
+                grams[i - 2] = (a shl 32) or (b shl 16) or c
+                a = b
+                b = c
+            }
+            grams.sort()
+
+            var distinct = 0
+            for (i in grams.indices) {
+                if (i == 0 || grams[i] != grams[distinct - 1]) grams[distinct++] = grams[i]
+            }
+            return grams.copyOf(distinct)
+        }
+
+        /**
+         * Index imported texts of dataset version and write the index to [file], reusing
+         * postings of the file's previous index for unchanged texts (see DataImporter)
+         * Plain texts are expanded by [SearchTextIndex], same as for the text list.
+         */
+        suspend fun updateFile(file: File, texts: List<TextEntity>, datasetVersion: Int) {
+            val previous = withContext(Dispatchers.IO) { read(file) }
+            val updated = withContext(Dispatchers.Default) {
+                // RID order, last text wins for duplicate RIDs (like the database and TextListIndex)
+                val byRid = texts.associateBy { it.rid }
+                val entities = byRid.keys.sorted().map { byRid.getValue(it) }.toTypedArray()
+                val slots = BitSet().apply { set(0, entities.size) }
+                val searchTexts = SearchTextIndex.build(slots, entities, null)
+                update(
+                    previous,
+                    LongArray(entities.size) { entities[it].rid },
+                    Array(entities.size) { entities[it].title },
+                    Array(entities.size) { searchTexts.plainText(it) ?: "" },
+                    datasetVersion
+                )
+            }
+            withContext(Dispatchers.IO) { updated.write(file) }
+        }
+
+        /**
+         * Index for texts (RIDs ascending) of dataset version, reusing postings of [previous]
+         * for unchanged texts. Returns [previous] itself if nothing changed at all.
+         */
+        suspend fun update(
+            previous: TrigramIndex?,
+            rids: LongArray,
+            titles: Array<String>,
+            bodies: Array<String>,
+            datasetVersion: Int
+        ): TrigramIndex {
+            val hashes = LongArray(rids.size) { hash(titles[it], bodies[it]) }
+            if (previous != null && previous.rids.contentEquals(rids) && previous.hashes.contentEquals(hashes)) {
+                if (previous.datasetVersion == datasetVersion) return previous
+                return TrigramIndex(datasetVersion, previous.rids, previous.hashes, previous.postings)
+            }
+
+            // Old doc -> new doc of unchanged texts, -1 for changed or removed ones
+            val stale = BooleanArray(rids.size) { true }
+            val oldToNew = IntArray(previous?.rids?.size ?: 0) { -1 }
+            val lists = HashMap<Long, IntList>()
+            if (previous != null) {
+                previous.rids.forEachIndexed { oldDoc, rid ->
+                    val doc = rids.binarySearch(rid)
+                    if (doc >= 0 && previous.hashes[oldDoc] == hashes[doc]) {
+                        oldToNew[oldDoc] = doc
+                        stale[doc] = false
+                    }
+                }
+
+                previous.postings.forEach { (trigram, docs) ->
+                    val list = IntList(docs.size)
+                    docs.forEach { oldDoc -> oldToNew[oldDoc].let { if (it >= 0) list.add(it) } }
+                    if (list.size > 0) lists[trigram] = list
+                }
+            }
+
+            var reindexed = 0
+            for (doc in rids.indices) {
+                if (!stale[doc]) continue
+                if (reindexed++ % 32 == 0) currentCoroutineContext().ensureActive()
+                trigrams(titles[doc] + "\n" + bodies[doc]).forEach { trigram ->
+                    lists.getOrPut(trigram) { IntList(4) }.add(doc)
+                }
+            }
+            Log.d(TAG, "Indexed $reindexed of ${rids.size} texts")
+
+            val postings = HashMap<Long, IntArray>(lists.size)
+            lists.forEach { (trigram, list) -> postings[trigram] = list.toSortedArray() }
+            return TrigramIndex(datasetVersion, rids.copyOf(), hashes, postings)
+        }
+
+        /**
+         * Read index, null if missing or unreadable
+         */
+        fun read(file: File): TrigramIndex? {
+            return try {
+                DataInputStream(AtomicFile(file).openRead().buffered()).use { input ->
+                    if (input.readInt() != FORMAT_VERSION) return null
+                    val datasetVersion = input.readInt()
+
+                    val docCount = input.readInt()
+                    val rids = LongArray(docCount) { input.readLong() }
+                    val hashes = LongArray(docCount) { input.readLong() }
+
+                    val trigramCount = input.readInt()
+                    val postings = HashMap<Long, IntArray>(trigramCount)
+                    repeat(trigramCount) {
+                        val trigram = input.readLong()
+                        var doc = 0
+                        postings[trigram] = IntArray(readVarInt(input)) {
+                            doc += readVarInt(input)
+                            doc
+                        }
+                    }
+                    TrigramIndex(datasetVersion, rids, hashes, postings)
+                }
+            } catch (e: FileNotFoundException) {
+                null
+            } catch (e: Exception) {
+                Log.w(TAG, "Ignoring unreadable trigram index", e)
+                null
+            }
+        }
+
+        private fun readVarInt(input: DataInputStream): Int {
+            var value = 0
+            var shift = 0
+            while (true) {
+                val b = input.readUnsignedByte()
+                value = value or ((b and 0x7F) shl shift)
+                if (b and 0x80 == 0) return value
+                shift += 7
+            }
+        }
+
+        private fun writeVarInt(output: DataOutputStream, value: Int) {
+            var v = value
+            while (v and 0x7F.inv() != 0) {
+                output.writeByte((v and 0x7F) or 0x80)
+                v = v ushr 7
+            }
+            output.writeByte(v)
+        }
+    }
+
+    /**
+     * Growable int list (posting list under construction)
+     */
+    private class IntList(capacity: Int) {
+        private var values = IntArray(maxOf(capacity, 1))
+        var size = 0
+            private set
+
+        fun add(value: Int) {
+            if (size == values.size) values = values.copyOf(size * 2)
+            values[size++] = value
+        }
+
+        fun toSortedArray(): IntArray = values.copyOf(size).also { it.sort() }
+    }
+
+    /**
+     * Number of indexed texts
+     */
+    val size: Int
+        get() = rids.size
+
+    /**
+     * RIDs of texts containing every trigram of term - a superset of the texts
+     * containing term, ascending. Null if term is too short to use the index.
+     */
+    fun candidates(term: String): LongArray? {
+        val grams = trigrams(term)
+        if (grams.isEmpty()) return null
+
+        // Intersect shortest lists first, so the running result stays small
+        val lists = grams.map { postings[it] ?: return LongArray(0) }.sortedBy { it.size }
+        var result = lists[0]
+        for (i in 1 until lists.size) {
+            result = intersect(result, lists[i])
+            if (result.isEmpty()) break
+        }
+        return LongArray(result.size) { rids[result[it]] }
+    }
+
+    private fun intersect(a: IntArray, b: IntArray): IntArray {
+        val out = IntArray(minOf(a.size, b.size))
+        var i = 0
+        var j = 0
+        var n = 0
+        while (i < a.size && j < b.size) {
+            when {
+                a[i] < b[j] -> i++
+                a[i] > b[j] -> j++
+                else -> {
+                    out[n++] = a[i]
+                    i++
+                    j++
+                }
+            }
+        }
+        return out.copyOf(n)
+    }
+
+    /**
+     * Write index atomically - a crash mid-write keeps the previous one
+     * Posting lists are delta + varint encoded
+     */
+    fun write(file: File) {
+        val atomicFile = AtomicFile(file)
+        val stream = try {
+            atomicFile.startWrite()
+        } catch (e: Exception) {
+            Log.e(TAG, "Error writing trigram index", e)
+            return
+        }
+
+        try {
+            val output = DataOutputStream(stream.buffered())
+            output.writeInt(FORMAT_VERSION)
+            output.writeInt(datasetVersion)
+
+            output.writeInt(rids.size)
+            rids.forEach { output.writeLong(it) }
+            hashes.forEach { output.writeLong(it) }
+
+            output.writeInt(postings.size)
+            postings.forEach { (trigram, docs) ->
+                output.writeLong(trigram)
+                writeVarInt(output, docs.size)
+                var previous = 0
+                docs.forEach { doc ->
+                    writeVarInt(output, doc - previous)
+                    previous = doc
+                }
+            }
+
+            output.flush()
+            atomicFile.finishWrite(stream)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error writing trigram index", e)
+            atomicFile.failWrite(stream)
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.convocatis.app.ui.dialogs
+
+import android.app.Dialog
+import android.os.Bundle
+import android.widget.EditText
+import android.widget.Toast
+import androidx.appcompat.app.AlertDialog
+import androidx.fragment.app.DialogFragment
+import com.convocatis.app.R
+import com.convocatis.app.utils.ProgramManager
+
+/**
+ * Ask for a name and create a program, adding a text to it (if any)
+ */
+class NewProgramDialog : DialogFragment() {
+
+    companion object {
+        private const val ARG_ADD_RID = "add_rid"
+
+        /**
+         * @param addRid text to add to the new program, null for an empty program
+         */
+        fun newInstance(addRid: Long? = null): NewProgramDialog {
+            val dialog = NewProgramDialog()
+            dialog.arguments = Bundle().apply {
+                addRid?.let { putLong(ARG_ADD_RID, it) }
+            }
+            return dialog
+        }
+    }
+
+    override fun onCreateDialog(savedInstanceState: Bundle?): Dialog {
+        val context = requireContext()
+        val addRid = arguments?.takeIf { it.containsKey(ARG_ADD_RID) }?.getLong(ARG_ADD_RID)
+
+        val nameInput = EditText(context).apply {
+            hint = context.getString(R.string.program_name)
+            setSingleLine()
+        }
+
+        return AlertDialog.Builder(context)
+            .setTitle(R.string.new_program)
+            .setView(nameInput)
+            .setPositiveButton(R.string.create) { _, _ ->
+                val name = nameInput.text.toString().trim()
+                if (name.isEmpty()) return@setPositiveButton
+                val programManager = ProgramManager(context)
+                val program = programManager.createProgram(name)
+                if (addRid != null) {
+                    programManager.addText(program.id, addRid)
+                    Toast.makeText(context, context.getString(R.string.added_to_program, program.name), Toast.LENGTH_SHORT).show()
+                }
+            }
+            .setNegativeButton(R.string.cancel, null)
+            .create()
+    }
+}
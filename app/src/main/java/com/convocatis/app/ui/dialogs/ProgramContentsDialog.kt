@@ -0,0 +1,132 @@
+package com.convocatis.app.ui.dialogs
+
+import android.app.Dialog
+import android.content.DialogInterface
+import android.os.Bundle
+import android.util.Log
+import android.widget.ArrayAdapter
+import android.widget.FrameLayout
+import android.widget.ListView
+import android.widget.TextView
+import androidx.appcompat.app.AlertDialog
+import androidx.fragment.app.DialogFragment
+import androidx.lifecycle.lifecycleScope
+import com.convocatis.app.ConvocatisApplication
+import com.convocatis.app.MainActivity
+import com.convocatis.app.R
+import com.convocatis.app.utils.ProgramManager
+import com.convocatis.app.utils.TextPreloader
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.launch
+
+/**
+ * Texts of one program - tap a text to move it up or remove it ([ProgramTextDialog])
+ *
+ * The program is prepared by [TextPreloader] while it is shown, and anew after every
+ * change of its order, so starting it doesn't wait for anything. Everything it needs
+ * is in its arguments, so it survives recreation (e.g. rotation).
+ */
+class ProgramContentsDialog : DialogFragment() {
+
+    companion object {
+        private const val TAG = "ProgramContentsDialog"
+        private const val ARG_PROGRAM_ID = "program_id"
+
+        fun newInstance(programId: Long): ProgramContentsDialog {
+            val dialog = ProgramContentsDialog()
+            dialog.arguments = Bundle().apply {
+                putLong(ARG_PROGRAM_ID, programId)
+            }
+            return dialog
+        }
+    }
+
+    private val programId: Long
+        get() = requireArguments().getLong(ARG_PROGRAM_ID)
+
+    private lateinit var programManager: ProgramManager
+    private lateinit var adapter: ArrayAdapter<String>
+    private var titles: Map<Long, String> = emptyMap()
+
+    override fun onCreateDialog(savedInstanceState: Bundle?): Dialog {
+        val context = requireContext()
+        programManager = ProgramManager(context)
+        val program = programManager.getProgram(programId)
+
+        adapter = ArrayAdapter(context, android.R.layout.simple_list_item_1, ArrayList())
+        val listView = ListView(context)
+        listView.adapter = adapter
+        listView.setOnItemClickListener { _, _, position, _ ->
+            val rid = programManager.getProgram(programId)?.rids?.getOrNull(position) ?: return@setOnItemClickListener
+            ProgramTextDialog.newInstance(programId, position, titles[rid] ?: "%$rid")
+                .show(childFragmentManager, "ProgramTextDialog")
+        }
+        val emptyView = TextView(context).apply {
+            setText(R.string.program_empty)
+            setPadding(60, 32, 60, 16)
+        }
+        listView.emptyView = emptyView
+
+        val content = FrameLayout(context).apply {
+            addView(listView)
+            addView(emptyView)
+        }
+
+        refresh()
+        loadTitles()
+
+        return AlertDialog.Builder(context)
+            .setTitle(program?.name)
+            .setView(content)
+            .setPositiveButton(R.string.start_program) { _, _ ->
+                (activity as? MainActivity)?.showProgram(programId)
+            }
+            .setNeutralButton(R.string.delete_program) { _, _ ->
+                programManager.deleteProgram(programId)
+                TextPreloader.dropProgram(programId)
+            }
+            .setNegativeButton(R.string.close, null)
+            .create()
+    }
+
+    override fun onStart() {
+        super.onStart()
+        // The program was deleted meanwhile (e.g. while in the background)
+        if (programManager.getProgram(programId) == null) dismiss() else updateStartButton()
+    }
+
+    /**
+     * Show the program's current order and prepare it (also after a change)
+     */
+    fun refresh() {
+        val program = programManager.getProgram(programId) ?: return
+        adapter.clear()
+        adapter.addAll(program.rids.mapIndexed { index, rid -> "${index + 1}. ${titles[rid] ?: "%$rid"}" })
+        updateStartButton()
+        TextPreloader.preloadProgram(requireContext(), ConvocatisApplication.getInstance().textRepository, program)
+    }
+
+    private fun updateStartButton() {
+        val empty = programManager.getProgram(programId)?.rids.isNullOrEmpty()
+        (dialog as? AlertDialog)?.getButton(DialogInterface.BUTTON_POSITIVE)?.isEnabled = !empty
+    }
+
+    /**
+     * Titles of the program's texts - rows show "%RID" until they are loaded
+     */
+    private fun loadTitles() {
+        val program = programManager.getProgram(programId) ?: return
+        val repository = ConvocatisApplication.getInstance().textRepository
+
+        lifecycleScope.launch {
+            try {
+                titles = repository.getTexts(program.rids.distinct()).associate { it.rid to it.title }
+                refresh()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Error loading program texts", e)
+            }
+        }
+    }
+}
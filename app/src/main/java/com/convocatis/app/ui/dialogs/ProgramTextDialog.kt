@@ -0,0 +1,51 @@
+package com.convocatis.app.ui.dialogs
+
+import android.app.Dialog
+import android.os.Bundle
+import androidx.appcompat.app.AlertDialog
+import androidx.fragment.app.DialogFragment
+import com.convocatis.app.R
+import com.convocatis.app.utils.ProgramManager
+
+/**
+ * Actions for one text of a program - move it up or remove it
+ * Shown by [ProgramContentsDialog], which is refreshed after a change.
+ */
+class ProgramTextDialog : DialogFragment() {
+
+    companion object {
+        private const val ARG_PROGRAM_ID = "program_id"
+        private const val ARG_POSITION = "position"
+        private const val ARG_TITLE = "title"
+
+        fun newInstance(programId: Long, position: Int, title: String): ProgramTextDialog {
+            val dialog = ProgramTextDialog()
+            dialog.arguments = Bundle().apply {
+                putLong(ARG_PROGRAM_ID, programId)
+                putInt(ARG_POSITION, position)
+                putString(ARG_TITLE, title)
+            }
+            return dialog
+        }
+    }
+
+    override fun onCreateDialog(savedInstanceState: Bundle?): Dialog {
+        val args = requireArguments()
+        val programId = args.getLong(ARG_PROGRAM_ID)
+        val position = args.getInt(ARG_POSITION)
+        val programManager = ProgramManager(requireContext())
+
+        val actions = arrayOf(getString(R.string.move_up), getString(R.string.remove))
+        return AlertDialog.Builder(requireContext())
+            .setTitle(args.getString(ARG_TITLE))
+            .setItems(actions) { _, which ->
+                if (which == 0) {
+                    programManager.moveTextUp(programId, position)
+                } else {
+                    programManager.removeText(programId, position)
+                }
+                (parentFragment as? ProgramContentsDialog)?.refresh()
+            }
+            .create()
+    }
+}
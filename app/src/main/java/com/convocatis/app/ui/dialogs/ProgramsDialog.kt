@@ -0,0 +1,66 @@
+package com.convocatis.app.ui.dialogs
+
+import android.app.Dialog
+import android.content.Context
+import android.os.Bundle
+import android.widget.Toast
+import androidx.appcompat.app.AlertDialog
+import androidx.fragment.app.DialogFragment
+import com.convocatis.app.R
+import com.convocatis.app.utils.ProgramManager
+
+/**
+ * Event programs - ordered lists of texts read one after another
+ *
+ * With a text to add: selecting a program (or creating a new one) appends the text.
+ * Without: selecting a program shows its texts ([ProgramContentsDialog]), which are
+ * prepared while shown and can be started from there.
+ */
+class ProgramsDialog : DialogFragment() {
+
+    companion object {
+        private const val ARG_ADD_RID = "add_rid"
+
+        /**
+         * @param addRid text to add to the selected program, null to browse programs
+         */
+        fun newInstance(addRid: Long? = null): ProgramsDialog {
+            val dialog = ProgramsDialog()
+            dialog.arguments = Bundle().apply {
+                addRid?.let { putLong(ARG_ADD_RID, it) }
+            }
+            return dialog
+        }
+    }
+
+    private val addRid: Long?
+        get() = arguments?.takeIf { it.containsKey(ARG_ADD_RID) }?.getLong(ARG_ADD_RID)
+
+    override fun onCreateDialog(savedInstanceState: Bundle?): Dialog {
+        val context = requireContext()
+        val programManager = ProgramManager(context)
+        val programs = programManager.getPrograms()
+
+        val items = programs.map { getString(R.string.program_item_count, it.name, it.rids.size) } +
+            getString(R.string.new_program)
+
+        return AlertDialog.Builder(context)
+            .setTitle(if (addRid != null) R.string.add_to_program else R.string.programs)
+            .setItems(items.toTypedArray()) { _, position ->
+                val program = programs.getOrNull(position)
+                val rid = addRid
+                when {
+                    program == null -> NewProgramDialog.newInstance(rid).show(parentFragmentManager, "NewProgramDialog")
+                    rid != null -> addToProgram(context, programManager, program, rid)
+                    else -> ProgramContentsDialog.newInstance(program.id).show(parentFragmentManager, "ProgramContentsDialog")
+                }
+            }
+            .setNegativeButton(R.string.cancel) { dialog, _ -> dialog.dismiss() }
+            .create()
+    }
+
+    private fun addToProgram(context: Context, programManager: ProgramManager, program: ProgramManager.Program, rid: Long) {
+        programManager.addText(program.id, rid)
+        Toast.makeText(context, context.getString(R.string.added_to_program, program.name), Toast.LENGTH_SHORT).show()
+    }
+}
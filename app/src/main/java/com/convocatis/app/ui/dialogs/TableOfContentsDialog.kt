@@ -0,0 +1,112 @@
+package com.convocatis.app.ui.dialogs
+
+import android.os.Bundle
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.ArrayAdapter
+import android.widget.LinearLayout
+import android.widget.ListView
+import android.widget.TextView
+import com.convocatis.app.R
+import com.google.android.material.bottomsheet.BottomSheetDialogFragment
+
+/**
+ * Bottom sheet listing the headers of the text being read
+ * Selecting a header jumps to its first page
+ */
+class TableOfContentsDialog : BottomSheetDialogFragment() {
+
+    private var onHeaderSelected: ((Int) -> Unit)? = null
+
+    companion object {
+        private const val ARG_TITLES = "titles"
+        private const val ARG_CURRENT_HEADER = "current_header"
+
+        fun newInstance(
+            titles: List<String>,
+            currentHeader: Int,
+            onHeaderSelected: (Int) -> Unit
+        ): TableOfContentsDialog {
+            val dialog = TableOfContentsDialog()
+            dialog.onHeaderSelected = onHeaderSelected
+            dialog.arguments = Bundle().apply {
+                putStringArrayList(ARG_TITLES, ArrayList(titles))
+                putInt(ARG_CURRENT_HEADER, currentHeader)
+            }
+            return dialog
+        }
+    }
+
+    override fun onCreateView(
+        inflater: LayoutInflater,
+        container: ViewGroup?,
+        savedInstanceState: Bundle?
+    ): View {
+        // Header texts may span several lines in the source - show them on one line
+        val titles = arguments?.getStringArrayList(ARG_TITLES).orEmpty()
+            .map { it.trim().replace(Regex("\\s+"), " ") }
+        val currentHeader = arguments?.getInt(ARG_CURRENT_HEADER, -1) ?: -1
+
+        val titleView = TextView(requireContext()).apply {
+            text = getString(R.string.table_of_contents)
+            textSize = 18f
+            setTypeface(null, android.graphics.Typeface.BOLD)
+            setPadding(40, 32, 40, 16)
+        }
+
+        val listView = ListView(requireContext())
+        listView.adapter = HeaderAdapter(titles, currentHeader)
+        listView.setOnItemClickListener { _, _, position, _ ->
+            onHeaderSelected?.invoke(position)
+            dismiss()
+        }
+        if (currentHeader >= 0) listView.setSelection(currentHeader)
+
+        return LinearLayout(requireContext()).apply {
+            orientation = LinearLayout.VERTICAL
+            addView(titleView)
+            addView(listView)
+        }
+    }
+
+    override fun onStart() {
+        super.onStart()
+        // Without a callback (recreated after process death) the sheet can't navigate
+        if (onHeaderSelected == null) dismiss()
+    }
+
+    /**
+     * Adapter for headers, current header highlighted
+     */
+    private inner class HeaderAdapter(
+        private val titles: List<String>,
+        private val currentHeader: Int
+    ) : ArrayAdapter<String>(
+        requireContext(),
+        android.R.layout.simple_list_item_1,
+        titles
+    ) {
+        override fun getView(position: Int, convertView: View?, parent: ViewGroup): View {
+            val view = convertView ?: LayoutInflater.from(context)
+                .inflate(android.R.layout.simple_list_item_1, parent, false)
+
+            val textView = view.findViewById<TextView>(android.R.id.text1)
+            textView.text = titles[position]
+
+            // Highlight the header being read
+            if (position == currentHeader) {
+                textView.setTextColor(0xFF1976D2.toInt())
+                textView.setTypeface(null, android.graphics.Typeface.BOLD)
+            } else {
+                textView.setTextColor(0xFF000000.toInt())
+                textView.setTypeface(null, android.graphics.Typeface.NORMAL)
+            }
+
+            textView.setPadding(40, 32, 40, 32)
+            textView.textSize = 16f
+
+            return view
+        }
+    }
+}
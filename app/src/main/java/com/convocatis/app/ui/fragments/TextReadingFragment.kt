@@ -1,13 +1,8 @@
 package com.convocatis.app.ui.fragments
 
-import android.content.Intent
-import android.net.Uri
-import android.os.Build
 import android.os.Bundle
 import android.text.TextUtils
 import android.text.method.LinkMovementMethod
-import android.text.style.ClickableSpan
-import android.text.style.URLSpan
 import android.util.Log
 import android.view.GestureDetector
 import android.view.LayoutInflater
@@ -17,32 +12,40 @@ import android.view.ViewGroup
 import android.widget.Button
 import android.widget.ProgressBar
 import android.widget.TextView
-import androidx.core.text.HtmlCompat
+import androidx.core.widget.TextViewCompat
 import androidx.fragment.app.Fragment
+import androidx.fragment.app.viewModels
 import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.RecyclerView
 import androidx.viewpager2.widget.ViewPager2
-import com.convocatis.app.ConvocatisApplication
+import com.convocatis.app.MainActivity
 import com.convocatis.app.R
-import com.convocatis.app.database.entity.TextEntity
-import kotlinx.coroutines.Dispatchers
+import com.convocatis.app.ui.dialogs.TableOfContentsDialog
+import com.convocatis.app.utils.PageRenderer
+import com.convocatis.app.utils.ReadingModel
+import com.convocatis.app.viewmodel.TextReadingViewModel
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.withContext
 import kotlin.math.abs
 
 /**
  * Fragment for reading text with two-level navigation:
  * - Main text (headers) - top level navigation
  * - Sub text (pages) - bottom level navigation
+ * Opened from a search, it moves to the first matching page (once located) with matches highlighted
  *
  * Based on the original Java implementation with simplified parsing logic
  */
 class TextReadingFragment : Fragment() {
 
-    private lateinit var textEntity: TextEntity
-    private val pageDataList = ArrayList<PageData>()
+    // Reading model and rendered pages survive rotation in the ViewModel
+    private val viewModel: TextReadingViewModel by viewModels()
+    private val searchTerm: String? get() = viewModel.searchTerm
+    private var matchPages = IntArray(0)  // Page positions with search matches, ascending
+    private var readingModel: ReadingModel? = null
+    private var pageDataList: List<ReadingModel.PageData> = emptyList()
     private var savedPagePosition: Int = 0
-    private val database by lazy { ConvocatisApplication.getInstance().database }
+    private var pageRenderer: PageRenderer? = null
+    private var startPageReported = false
 
     // Views
     private lateinit var mainTextScroll: View
@@ -61,35 +64,10 @@ class TextReadingFragment : Fragment() {
     private lateinit var nextMainButton: Button
     private lateinit var prevSubButton: Button
     private lateinit var nextSubButton: Button
-
-    /**
-     * Data class representing a single page with main and sub text
-     */
-    data class PageData(
-        val mainText: String?,
-        val subText: String?,
-        val mainProgress: Int,
-        val mainCount: Int,
-        val subProgress: Int,
-        val subCount: Int,
-        val secondaryProgress: Int,
-        val secondaryCount: Int,
-        val isRepeatedSegment: Boolean = false,  // True if segment has repetition (N^)
-        val headerIndex: Int = 0,  // Index among headers only (0-based)
-        val headerCount: Int = 0   // Total number of unique headers
-    )
-
-    override fun onCreate(savedInstanceState: Bundle?) {
-        super.onCreate(savedInstanceState)
-        arguments?.let {
-            textEntity = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                it.getSerializable(ARG_TEXT, TextEntity::class.java) ?: getDefaultEntity()
-            } else {
-                @Suppress("DEPRECATION")
-                it.getSerializable(ARG_TEXT) as? TextEntity ?: getDefaultEntity()
-            }
-        }
-    }
+    private lateinit var matchPanel: View
+    private lateinit var matchIndicator: TextView
+    private lateinit var prevMatchButton: Button
+    private lateinit var nextMatchButton: Button
 
     override fun onCreateView(
         inflater: LayoutInflater,
@@ -119,12 +97,13 @@ class TextReadingFragment : Fragment() {
         nextMainButton = view.findViewById(R.id.nextHeaderButton)
         prevSubButton = view.findViewById(R.id.prevPageButton)
         nextSubButton = view.findViewById(R.id.nextPageButton)
+        matchPanel = view.findViewById(R.id.matchNavigationContainer)
+        matchIndicator = view.findViewById(R.id.matchIndicator)
+        prevMatchButton = view.findViewById(R.id.prevMatchButton)
+        nextMatchButton = view.findViewById(R.id.nextMatchButton)
 
-        // Set toolbar title with "Convocatis – Text Name" format
-        // Android automatically handles ellipsis truncation if text is too long
-        (activity as? androidx.appcompat.app.AppCompatActivity)?.supportActionBar?.apply {
-            title = "Convocatis – ${textEntity.title}"
-        }
+        // Title right away when the text is cached, otherwise once it is loaded
+        viewModel.cachedTitle()?.let { setTitle(it) }
 
         // Set up navigation buttons
         setupNavigationButtons()
@@ -132,9 +111,23 @@ class TextReadingFragment : Fragment() {
         // Set up swipe gesture for header section
         setupHeaderSwipeGesture()
 
-        // Parse text in background
-        lifecycleScope.launch {
-            parseText()
+        // Set up swipe past the first / last page to the neighbouring texts
+        setupTextSwipeGesture()
+
+        // Page structure is scanned once per ViewModel (after rotation it is ready at once),
+        // referenced texts are loaded per section later
+        viewLifecycleOwner.lifecycleScope.launch {
+            val reader = viewModel.reader()
+            if (reader == null) {
+                // Text gone (e.g. removed by an import) or unreadable - go back
+                activity?.onBackPressed()
+                return@launch
+            }
+            setTitle(reader.text.title)
+
+            val model = reader.model
+            readingModel = model
+            pageDataList = model.pages
 
             if (pageDataList.isEmpty()) {
                 // No pages - go back
@@ -142,32 +135,67 @@ class TextReadingFragment : Fragment() {
                 return@launch
             }
 
+            // Search matches are located in the background - ready at once after rotation
+            // or when the text was preloaded, otherwise applied once they are known
+            val matches = reader.matchPages
+            if (matches.isCompleted) matchPages = matches.await()
+
+            // Pages render in the background (search matches highlighted), bind only assigns ready text
+            val renderer = reader.renderer
+            pageRenderer = renderer
+
             // Setup ViewPager
-            val adapter = PageAdapter(pageDataList)
+            val adapter = PageAdapter(pageDataList, renderer)
             pageViewPager.adapter = adapter
+            renderer.onPageReady = { position ->
+                adapter.notifyItemChanged(position, PageAdapter.PAYLOAD_TEXT_READY)
+                if (position == pageViewPager.currentItem) onStartPageReady()
+            }
 
             // Set up page change listener
             pageViewPager.registerOnPageChangeCallback(object : ViewPager2.OnPageChangeCallback() {
                 override fun onPageSelected(position: Int) {
                     super.onPageSelected(position)
+                    renderer.prefetchAround(position, pageDataList.size)
+                    prefetchSections(position)
                     updateUI(position)
                 }
             })
 
-            // Restore or set initial position
-            val startPosition = if (savedPagePosition in 0 until pageDataList.size) {
-                savedPagePosition
-            } else {
-                0
+            // Restore position, or start on the first search match
+            val restored = savedInstanceState != null && savedPagePosition in 0 until pageDataList.size
+            val startPosition = when {
+                restored -> savedPagePosition
+                matchPages.isNotEmpty() -> matchPages[0]
+                else -> 0
             }
+            renderer.prefetchAround(startPosition, pageDataList.size)
+            prefetchSections(startPosition)
             pageViewPager.setCurrentItem(startPosition, false)
             updateUI(startPosition)
+            // Rendered before (rotation, preloaded neighbour) - on screen with this layout pass
+            if (renderer.getCached(startPosition) != null) onStartPageReady()
 
             // Show panels if multiple pages
             if (pageDataList.size > 1) {
                 panel1.visibility = View.VISIBLE
                 panel2.visibility = View.VISIBLE
             }
+
+            // Outline is ready - show table of contents menu item
+            activity?.invalidateOptionsMenu()
+
+            // This text is shown - prepare the previous and next one for swiping over
+            viewModel.preloadNeighbours()
+
+            if (!matches.isCompleted) {
+                matchPages = matches.await()
+                // Jump to the first match unless the user moved on meanwhile
+                if (!restored && pageViewPager.currentItem == startPosition && matchPages.isNotEmpty()) {
+                    pageViewPager.setCurrentItem(matchPages[0], false)
+                }
+                updateMatchNavigation(pageViewPager.currentItem)
+            }
         }
 
         return view
@@ -227,53 +255,97 @@ class TextReadingFragment : Fragment() {
     }
 
     /**
-     * Navigate to next header's first page
+     * Swiping past the last page opens the next text of the reading order, swiping
+     * before the first page the previous one. Pages keep swiping in ViewPager2 -
+     * the listener only watches the gesture.
      */
-    private fun navigateToNextHeader() {
-        val currentItem = pageViewPager.currentItem
-        if (currentItem >= pageDataList.size) return
+    private fun setupTextSwipeGesture() {
+        val pages = pageViewPager.getChildAt(0) as? RecyclerView ?: return
+        var startX = 0f
+        var startY = 0f
+        // Pager edge when the finger went down - a drag that only reaches the
+        // first/last page scrolls there, it doesn't open a neighbour as well
+        var startedAtStart = false
+        var startedAtEnd = false
+
+        pages.addOnItemTouchListener(object : RecyclerView.SimpleOnItemTouchListener() {
+            override fun onInterceptTouchEvent(rv: RecyclerView, e: MotionEvent): Boolean {
+                when (e.actionMasked) {
+                    MotionEvent.ACTION_DOWN -> {
+                        startX = e.x
+                        startY = e.y
+                        startedAtStart = !rv.canScrollHorizontally(-1)
+                        startedAtEnd = !rv.canScrollHorizontally(1)
+                    }
+                    MotionEvent.ACTION_UP -> {
+                        val diffX = e.x - startX
+                        // Swipe threshold: 100 pixels, horizontal movement dominant
+                        if (abs(diffX) > 100 && abs(diffX) > abs(e.y - startY)) {
+                            if (diffX < 0 && startedAtEnd) {
+                                openNeighbour(viewModel.nextRid)
+                            } else if (diffX > 0 && startedAtStart) {
+                                openNeighbour(viewModel.previousRid)
+                            }
+                        }
+                    }
+                }
+                return false
+            }
+        })
+    }
 
-        val currentHeaderIndex = pageDataList[currentItem].headerIndex
+    /**
+     * Replace this text with a neighbour of the reading order (usually preloaded)
+     */
+    private fun openNeighbour(rid: Long?) {
+        val activity = activity as? MainActivity ?: return
+        if (rid == null) return
+        viewModel.handedOver = true
+        activity.showNeighbourText(
+            rid,
+            viewModel.languageOf(rid),
+            viewModel.searchTerm,
+            viewModel.sequence
+        )
+    }
 
-        // Find first page with next headerIndex
-        for (i in currentItem + 1 until pageDataList.size) {
-            val page = pageDataList[i]
-            if (page.headerIndex > currentHeaderIndex && page.mainText != null) {
-                pageViewPager.currentItem = i
-                break
-            }
-        }
+    /**
+     * Navigate to next header's first page
+     */
+    private fun navigateToNextHeader() {
+        val outline = readingModel?.outline ?: return
+        val target = outline.nextHeaderPage(pageViewPager.currentItem)
+        if (target >= 0) pageViewPager.currentItem = target
     }
 
     /**
      * Navigate to previous header's first page
      */
     private fun navigateToPreviousHeader() {
-        val currentItem = pageViewPager.currentItem
-        if (currentItem >= pageDataList.size) return
-
-        val currentHeaderIndex = pageDataList[currentItem].headerIndex
-
-        // Find the previous headerIndex
-        var targetHeaderIndex = -1
-        for (i in currentItem - 1 downTo 0) {
-            val page = pageDataList[i]
-            if (page.headerIndex < currentHeaderIndex && page.mainText != null) {
-                targetHeaderIndex = page.headerIndex
-                break
-            }
-        }
+        val outline = readingModel?.outline ?: return
+        val target = outline.previousHeaderPage(pageViewPager.currentItem)
+        if (target >= 0) pageViewPager.currentItem = target
+    }
 
-        // If found, go to the FIRST page with this headerIndex
-        if (targetHeaderIndex >= 0) {
-            for (i in 0 until pageDataList.size) {
-                val page = pageDataList[i]
-                if (page.headerIndex == targetHeaderIndex && page.mainText != null) {
-                    pageViewPager.currentItem = i
-                    break
-                }
-            }
-        }
+    /**
+     * Whether the text has enough headers for a table of contents
+     */
+    fun hasTableOfContents(): Boolean = (readingModel?.outline?.headerCount ?: 0) > 1
+
+    /**
+     * Show table of contents - selecting a header jumps to its first page
+     */
+    fun showTableOfContents() {
+        val outline = readingModel?.outline ?: return
+        if (outline.headerCount == 0) return
+
+        val currentHeader = pageDataList.getOrNull(pageViewPager.currentItem)
+            ?.takeIf { it.mainText != null }?.headerIndex ?: -1
+
+        TableOfContentsDialog.newInstance(outline.titles, currentHeader) { headerIndex ->
+            val target = outline.firstPages.getOrNull(headerIndex) ?: -1
+            if (target >= 0) pageViewPager.setCurrentItem(target, false)
+        }.show(childFragmentManager, "TableOfContentsDialog")
     }
 
     /**
@@ -305,354 +377,44 @@ class TextReadingFragment : Fragment() {
                 pageViewPager.currentItem = currentItem - 1
             }
         }
-    }
-
-    /**
-     * Parse text content into pages
-     * Based on the original Java parseText() logic
-     */
-    private suspend fun parseText() = withContext(Dispatchers.Default) {
-        pageDataList.clear()
-
-        val text = textEntity.rawContent
-        var currentMainText: String? = null
-        var currentRepetitionCount = 1
-        val currentSubtexts = ArrayList<String>()
-
-        var currentIndex = 0
-
-        while (true) {
-            val mainTextIndex = text.indexOf(">>", currentIndex)
-            val subTextIndex = text.indexOf("|", currentIndex)
-
-            if (mainTextIndex == -1 && subTextIndex == -1) {
-                break
-            }
-
-            if (mainTextIndex != -1 && (subTextIndex == -1 || subTextIndex > mainTextIndex)) {
-                // Found main text (header)
 
-                // Process previous main/sub texts
-                if (currentMainText != null || currentSubtexts.isNotEmpty()) {
-                    processCurrentTexts(currentMainText, currentSubtexts, currentRepetitionCount)
-                    currentSubtexts.clear()
-                }
-
-                val endMainTextIndex = text.indexOf("<<", mainTextIndex).takeIf { it != -1 } ?: text.length
-                currentIndex = endMainTextIndex + 2
-
-                currentMainText = text.substring(mainTextIndex + 2, endMainTextIndex)
-
-                // Check for repetition (e.g., "3^Header text")
-                val repetitionSignIndex = currentMainText.indexOf("^")
-                currentRepetitionCount = 1
-
-                if (repetitionSignIndex > -1) {
-                    try {
-                        val repetitionString = currentMainText.substring(0, repetitionSignIndex)
-                        currentRepetitionCount = repetitionString.toInt().coerceIn(1, 1000)
-                        currentMainText = currentMainText.substring(repetitionSignIndex + 1)
-                    } catch (e: NumberFormatException) {
-                        // Ignore if not a valid number
-                    }
-                }
-
-                // Check for content after >> << (reference or text without |)
-                if (currentIndex < text.length) {
-                    when {
-                        // Reference (e.g., ">>Header<<%50")
-                        text[currentIndex] == '%' -> {
-                            val referenceEndIndex = text.indexOfAny(charArrayOf('|', '>'), currentIndex + 1)
-                                .takeIf { it != -1 } ?: text.length
-                            val referenceText = text.substring(currentIndex, referenceEndIndex).trim()
-                            currentIndex = referenceEndIndex
-
-                            // Resolve reference and add as sub text
-                            val resolvedText = resolveReference(referenceText)
-                            if (resolvedText != null) {
-                                currentSubtexts.add(resolvedText)
-                            }
-                        }
-                        // Text without | (e.g., ">>Header<<\nPIRMAIS NOSLĒPUMS")
-                        text[currentIndex] != '|' && text[currentIndex] != '>' -> {
-                            // Skip whitespace
-                            while (currentIndex < text.length && text[currentIndex].isWhitespace()) {
-                                currentIndex++
-                            }
-
-                            // Read until next >> or |
-                            val contentEndIndex1 = text.indexOf(">>", currentIndex).takeIf { it != -1 } ?: Int.MAX_VALUE
-                            val contentEndIndex2 = text.indexOf("|", currentIndex).takeIf { it != -1 } ?: Int.MAX_VALUE
-                            val contentEndIndex = minOf(contentEndIndex1, contentEndIndex2, text.length)
-
-                            if (contentEndIndex > currentIndex) {
-                                val contentText = text.substring(currentIndex, contentEndIndex).trim()
-                                if (contentText.isNotEmpty()) {
-                                    currentSubtexts.add(contentText)
-                                }
-                                currentIndex = contentEndIndex
-                            }
-                        }
-                    }
-                }
-            } else {
-                // Found sub text (page)
-                val endSubTextIndex1 = text.indexOf(">>", subTextIndex + 1).takeIf { it != -1 } ?: Int.MAX_VALUE
-                val endSubTextIndex2 = text.indexOf("|", subTextIndex + 1).takeIf { it != -1 } ?: Int.MAX_VALUE
-                val endSubTextIndex = minOf(endSubTextIndex1, endSubTextIndex2, text.length)
-
-                currentIndex = endSubTextIndex
-
-                var subText = text.substring(subTextIndex + 1, endSubTextIndex)
-
-                // Check for repetition (e.g., "10^Page content")
-                val repetitionSignIndex = subText.indexOf("^")
-                var repetitionCount = 1
-
-                if (repetitionSignIndex > -1) {
-                    try {
-                        val repetitionString = subText.substring(0, repetitionSignIndex)
-                        repetitionCount = repetitionString.toInt().coerceIn(1, 1000)
-                        subText = subText.substring(repetitionSignIndex + 1)
-                    } catch (e: NumberFormatException) {
-                        // Ignore if not a valid number
-                    }
-                }
-
-                // Check if sub text is a reference (e.g., "%50")
-                val finalSubText = if (subText.trim().startsWith("%")) {
-                    resolveReference(subText.trim()) ?: subText
-                } else {
-                    subText
-                }
-
-                // Add repeated sub texts
-                repeat(repetitionCount) {
-                    currentSubtexts.add(finalSubText)
-                }
-            }
-
-            if (currentIndex >= text.length) {
-                break
-            }
-        }
-
-        // Process remaining texts
-        if (currentMainText != null || currentSubtexts.isNotEmpty()) {
-            processCurrentTexts(currentMainText, currentSubtexts, currentRepetitionCount)
-        }
-
-        // If no pages were created, add the raw text as a single page
-        if (pageDataList.isEmpty()) {
-            addPageData(null, text, 0, 1, 0, 1, 0, 1)
-        }
-
-        // Recalculate segment progress for proper counting
-        recalculateSegmentProgress()
-    }
-
-    /**
-     * Recalculate segment progress to group consecutive pages
-     * Grouping rules:
-     * - Group consecutive non-repeated pages (isRepeatedSegment=false) with same mainText
-     * - Group consecutive repeated pages (isRepeatedSegment=true) with same subText and mainText
-     * - Header change starts a new group
-     * Also calculates header indices for top navigation
-     */
-    private fun recalculateSegmentProgress() {
-        if (pageDataList.isEmpty()) return
-
-        // Group consecutive pages by header and repetition status
-        val segments = mutableListOf<MutableList<Int>>()
-        var currentSegment = mutableListOf<Int>()
-        var prevMainText: String? = null
-        var prevSubText: String? = null
-        var prevIsRepeated: Boolean? = null
-
-        pageDataList.forEachIndexed { index, page ->
-            val mainText = page.mainText
-            val subText = page.subText
-            val isRepeated = page.isRepeatedSegment
-
-            // Start new segment if:
-            // 1. mainText (header) changed
-            // 2. isRepeated status changed
-            // 3. If isRepeated=true, subText changed (repeated content changed)
-            val shouldStartNewSegment = if (prevMainText != null) {
-                // Header changed
-                mainText != prevMainText ||
-                // Repetition status changed
-                isRepeated != prevIsRepeated ||
-                // For repeated segments, subText must be same
-                (isRepeated && subText != prevSubText)
-            } else {
-                false
-            }
-
-            if (shouldStartNewSegment) {
-                if (currentSegment.isNotEmpty()) {
-                    segments.add(currentSegment)
-                    currentSegment = mutableListOf()
-                }
-            }
-
-            currentSegment.add(index)
-            prevMainText = mainText
-            prevSubText = subText
-            prevIsRepeated = isRepeated
-        }
-
-        // Add final segment
-        if (currentSegment.isNotEmpty()) {
-            segments.add(currentSegment)
+        // Search match buttons - jump to the next / previous page with a match
+        nextMatchButton.setOnClickListener {
+            val target = matchPages.firstOrNull { it > pageViewPager.currentItem } ?: return@setOnClickListener
+            pageViewPager.setCurrentItem(target, false)
         }
 
-        // Calculate header indices - find unique headers in order
-        val headersInOrder = mutableListOf<String>()
-        val headerToIndex = mutableMapOf<String, Int>()
-
-        pageDataList.forEach { page ->
-            val header = page.mainText
-            if (header != null && !headerToIndex.containsKey(header)) {
-                headerToIndex[header] = headersInOrder.size
-                headersInOrder.add(header)
-            }
-        }
-
-        val totalHeaders = headersInOrder.size
-
-        // Update pages with new segment-based progress and header info
-        segments.forEachIndexed { segmentIndex, pageIndices ->
-            pageIndices.forEachIndexed { positionInSegment, pageIndex ->
-                val oldPage = pageDataList[pageIndex]
-                val headerIdx = if (oldPage.mainText != null) {
-                    headerToIndex[oldPage.mainText] ?: 0
-                } else {
-                    0
-                }
-
-                pageDataList[pageIndex] = oldPage.copy(
-                    mainProgress = segmentIndex,
-                    mainCount = segments.size,
-                    subProgress = positionInSegment,
-                    subCount = pageIndices.size,
-                    headerIndex = headerIdx,
-                    headerCount = totalHeaders
-                )
-            }
+        prevMatchButton.setOnClickListener {
+            val target = matchPages.lastOrNull { it < pageViewPager.currentItem } ?: return@setOnClickListener
+            pageViewPager.setCurrentItem(target, false)
         }
     }
 
     /**
-     * Resolve reference to another text (e.g., "%50" -> text with RID=50)
+     * Update search match bar: matches up to the current page, jump buttons
      */
-    private suspend fun resolveReference(reference: String): String? {
-        return try {
-            // Extract RID from reference (e.g., "%50" -> 50)
-            val ridString = reference.trim().removePrefix("%")
-            val rid = ridString.toLongOrNull() ?: return null
-
-            // Load text from database
-            val referencedText = withContext(Dispatchers.IO) {
-                database.textDao().getTextByRid(rid)
-            }
-
-            // Return raw content
-            referencedText?.rawContent
-        } catch (e: Exception) {
-            Log.e(TAG, "Error resolving reference: $reference", e)
-            null
+    private fun updateMatchNavigation(position: Int) {
+        val term = searchTerm
+        if (term == null || matchPages.isEmpty()) {
+            matchPanel.visibility = View.GONE
+            return
         }
-    }
-
-    /**
-     * Process current main text and sub texts into pages
-     */
-    private fun processCurrentTexts(
-        mainText: String?,
-        subTexts: List<String>,
-        repetitionCount: Int
-    ) {
-        if (subTexts.isEmpty()) {
-            // Only main text, repeat it
-            val isRepeated = repetitionCount > 1
-            repeat(repetitionCount) { i ->
-                addPageData(mainText, null, i, repetitionCount, 0, 1, i, repetitionCount, isRepeated)
-            }
-        } else {
-            val actualRepetitionCount = if (mainText == null) 1 else repetitionCount
-
-            repeat(actualRepetitionCount) { c ->
-                var subRepetition = 0
-                var subCount = 0
-                var prevSubText: String? = null
-
-                for (i in subTexts.indices) {
-                    val subText = subTexts[i]
-
-                    if (prevSubText == null || prevSubText != subText) {
-                        subRepetition = 0
-                        prevSubText = subText
-
-                        // Count consecutive identical sub texts
-                        subCount = 0
-                        for (j in i until subTexts.size) {
-                            if (subTexts[j] == subText) {
-                                subCount++
-                            } else {
-                                break
-                            }
-                        }
-                    } else {
-                        subRepetition++
-                    }
 
-                    // Mark as repeated if subCount > 1
-                    val isRepeated = subCount > 1
-
-                    addPageData(
-                        mainText,
-                        subText,
-                        c,
-                        actualRepetitionCount,
-                        subRepetition,
-                        subCount,
-                        c * subTexts.size + i,
-                        actualRepetitionCount * subTexts.size,
-                        isRepeated
-                    )
-                }
-            }
-        }
+        matchPanel.visibility = View.VISIBLE
+        val found = matchPages.binarySearch(position)
+        val current = if (found >= 0) found + 1 else -found - 1  // Matches on or before this page
+        matchIndicator.text = getString(R.string.match_indicator, term, current, matchPages.size)
+        prevMatchButton.visibility = if (matchPages[0] < position) View.VISIBLE else View.INVISIBLE
+        nextMatchButton.visibility = if (matchPages[matchPages.size - 1] > position) View.VISIBLE else View.INVISIBLE
     }
 
     /**
-     * Add a page to the data list
+     * Load referenced texts of the current section and its neighbours, so switching
+     * to the next or previous header never waits for the database
      */
-    private fun addPageData(
-        mainText: String?,
-        subText: String?,
-        mainProgress: Int,
-        mainCount: Int,
-        subProgress: Int,
-        subCount: Int,
-        secondaryProgress: Int,
-        secondaryCount: Int,
-        isRepeated: Boolean = false
-    ) {
-        pageDataList.add(
-            PageData(
-                mainText = mainText,
-                subText = subText,
-                mainProgress = mainProgress,
-                mainCount = mainCount,
-                subProgress = subProgress,
-                subCount = subCount,
-                secondaryProgress = secondaryProgress,
-                secondaryCount = secondaryCount,
-                isRepeatedSegment = isRepeated
-            )
-        )
+    private fun prefetchSections(position: Int) {
+        val model = readingModel ?: return
+        viewModel.prefetchSections(model, position)
     }
 
     /**
@@ -663,6 +425,8 @@ class TextReadingFragment : Fragment() {
 
         val data = pageDataList[position]
 
+        updateMatchNavigation(position)
+
         // Update main text panel (headers navigation)
         if (data.mainText == null || data.headerCount <= 1) {
             // Hide main panel if no header or only 1 header total
@@ -682,7 +446,7 @@ class TextReadingFragment : Fragment() {
         }
 
         // Update sub text panel (pages navigation)
-        if (data.subText == null) {
+        if (!data.hasSubText) {
             // Hide sub panel if no sub text
             subPanel.visibility = View.GONE
         } else {
@@ -734,14 +498,14 @@ class TextReadingFragment : Fragment() {
         pageViewPager.visibility = View.VISIBLE
         mainTextScroll.visibility = View.VISIBLE
 
-        if (data.mainText.isNullOrEmpty() || data.subText.isNullOrEmpty()) {
+        if (data.mainText.isNullOrEmpty() || data.isSubTextEmpty) {
             separator.visibility = View.GONE
         }
 
         if (data.mainText.isNullOrEmpty()) {
             mainTextScroll.visibility = View.GONE
             mainText.visibility = View.GONE
-        } else if (data.subText.isNullOrEmpty()) {
+        } else if (data.isSubTextEmpty) {
             pageViewPager.visibility = View.GONE
         }
 
@@ -754,6 +518,13 @@ class TextReadingFragment : Fragment() {
         }
     }
 
+    override fun onDestroyView() {
+        // Rendered pages stay in the ViewModel - only drop the callback into this view
+        pageRenderer?.onPageReady = null
+        pageRenderer = null
+        super.onDestroyView()
+    }
+
     override fun onSaveInstanceState(outState: Bundle) {
         super.onSaveInstanceState(outState)
         if (::pageViewPager.isInitialized) {
@@ -762,21 +533,56 @@ class TextReadingFragment : Fragment() {
         }
     }
 
-    private fun getDefaultEntity() = TextEntity(
-        rid = 0,
-        title = "",
-        rawContent = "",
-        languageCode = "lv"
-    )
+    /**
+     * Start page text is bound - tell the activity once it is drawn (startup timing)
+     */
+    private fun onStartPageReady() {
+        if (startPageReported) return
+        startPageReported = true
+        pageViewPager.post { (activity as? MainActivity)?.onFirstPageShown() }
+    }
+
+    /**
+     * Toolbar title in "Convocatis – Text Name" format
+     * Android automatically handles ellipsis truncation if text is too long
+     */
+    private fun setTitle(textTitle: String) {
+        (activity as? androidx.appcompat.app.AppCompatActivity)?.supportActionBar?.apply {
+            title = "Convocatis – $textTitle"
+        }
+    }
 
     companion object {
         private const val TAG = "TextReadingFragment"
-        private const val ARG_TEXT = "text_entity"
         private const val KEY_CURRENT_PAGE = "current_page"
 
-        fun newInstance(textEntity: TextEntity) = TextReadingFragment().apply {
+        /**
+         * Only the RID goes into the arguments - the text is loaded through the text repository
+         * (usually from its cache), so opening doesn't serialize the whole content
+         * @param searchTerm search the text was found with - opens on its first match
+         * @param sequence reading order the text was opened from (RIDs) - swiping past the
+         *   first / last page opens the previous / next text of it
+         */
+        fun newInstance(
+            rid: Long,
+            languageCode: String,
+            searchTerm: String? = null,
+            sequence: LongArray? = null
+        ) = TextReadingFragment().apply {
             arguments = Bundle().apply {
-                putSerializable(ARG_TEXT, textEntity)
+                putLongArray(TextReadingViewModel.ARG_SEQUENCE, sequence)
+                putLong(TextReadingViewModel.ARG_RID, rid)
+                putString(TextReadingViewModel.ARG_LANGUAGE, languageCode)
+                putString(TextReadingViewModel.ARG_SEARCH_TERM, searchTerm)
+            }
+        }
+
+        /**
+         * Reader for a whole program - its texts read as one continuous text
+         */
+        fun newProgramInstance(programId: Long) = TextReadingFragment().apply {
+            arguments = Bundle().apply {
+                putLong(TextReadingViewModel.ARG_PROGRAM_ID, programId)
             }
         }
     }
@@ -784,9 +590,17 @@ class TextReadingFragment : Fragment() {
 
 /**
  * ViewPager2 adapter for page content
+ * Page text is rendered (and, when possible, precomputed) ahead of time by [PageRenderer];
+ * binding only assigns it
  */
-class PageAdapter(private val pages: List<TextReadingFragment.PageData>) :
-    RecyclerView.Adapter<PageAdapter.PageViewHolder>() {
+class PageAdapter(
+    private val pages: List<ReadingModel.PageData>,
+    private val renderer: PageRenderer
+) : RecyclerView.Adapter<PageAdapter.PageViewHolder>() {
+
+    companion object {
+        const val PAYLOAD_TEXT_READY = "text_ready"
+    }
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): PageViewHolder {
         val view = LayoutInflater.from(parent.context)
@@ -795,74 +609,56 @@ class PageAdapter(private val pages: List<TextReadingFragment.PageData>) :
     }
 
     override fun onBindViewHolder(holder: PageViewHolder, position: Int) {
-        holder.bind(pages[position])
+        holder.bind(position)
+    }
+
+    override fun onBindViewHolder(holder: PageViewHolder, position: Int, payloads: MutableList<Any>) {
+        // Payload bind (text became ready / image loaded) just re-assigns text, no full rebind
+        holder.bind(position)
     }
 
     override fun getItemCount() = pages.size
 
-    class PageViewHolder(view: View) : RecyclerView.ViewHolder(view) {
+    inner class PageViewHolder(view: View) : RecyclerView.ViewHolder(view) {
         private val contentView: TextView = view.findViewById(R.id.pageContent)
 
-        fun bind(page: TextReadingFragment.PageData) {
-            val context = itemView.context
-
-            // Use sub text as content
-            val content = page.subText ?: page.mainText ?: ""
-
-            // Use Glide-based ImageGetter for loading images
-            val imageGetter = com.convocatis.app.utils.GlideImageGetter(
-                context = context,
-                textView = contentView,
-                maxWidth = 800,
-                maxHeight = 600
-            )
-
-            // Convert line breaks (\n) to HTML <br> tags for proper rendering
-            val contentWithBreaks = content.replace("\n", "<br>")
-
-            // Render HTML content with image support
-            val spanned = HtmlCompat.fromHtml(
-                contentWithBreaks,
-                HtmlCompat.FROM_HTML_MODE_LEGACY,
-                imageGetter,
-                null
-            )
-
-            contentView.text = spanned
-
+        init {
             // Make links clickable
             contentView.movementMethod = LinkMovementMethod.getInstance()
 
-            // Custom link click handler to open in browser/external app
-            makeLinkClickable(spanned)
+            // Report real text metrics and width so upcoming pages can be precomputed
+            contentView.addOnLayoutChangeListener { v, left, _, right, _, oldLeft, _, oldRight, _ ->
+                if (right - left != oldRight - oldLeft) {
+                    val textView = v as TextView
+                    renderer.updateTextMetrics(
+                        TextViewCompat.getTextMetricsParams(textView),
+                        textView.resources.configuration.fontScale,
+                        textView.width
+                    )
+                }
+            }
         }
 
-        private fun makeLinkClickable(spanned: android.text.Spanned) {
-            val urlSpans = spanned.getSpans(0, spanned.length, URLSpan::class.java)
-
-            for (span in urlSpans) {
-                val start = spanned.getSpanStart(span)
-                val end = spanned.getSpanEnd(span)
-                val flags = spanned.getSpanFlags(span)
-
-                val clickable = object : ClickableSpan() {
-                    override fun onClick(widget: View) {
-                        val url = span.url
-                        val context = widget.context
-
-                        try {
-                            // Open URL in default browser/app
-                            val intent = Intent(Intent.ACTION_VIEW, Uri.parse(url))
-                            context.startActivity(intent)
-                        } catch (e: Exception) {
-                            android.util.Log.e("PageAdapter", "Error opening URL: $url", e)
-                        }
-                    }
+        fun bind(position: Int) {
+            val precomputed = renderer.getLayout(position)
+            if (precomputed != null) {
+                try {
+                    TextViewCompat.setPrecomputedText(contentView, precomputed)
+                    return
+                } catch (e: IllegalArgumentException) {
+                    // Metrics of this TextView differ from the precomputed ones - fall back to Spanned
+                    Log.w("PageAdapter", "Precomputed text does not match page metrics", e)
                 }
+            }
 
-                (spanned as? android.text.SpannableString)?.setSpan(clickable, start, end, flags)
-                (spanned as? android.text.SpannableStringBuilder)?.setSpan(clickable, start, end, flags)
+            val spanned = renderer.getCached(position)
+            if (spanned != null) {
+                contentView.text = spanned
+            } else {
+                // Not rendered yet - show empty page, onPageReady re-binds it
+                contentView.text = null
             }
+            renderer.request(position)
         }
     }
 }
@@ -1,6 +1,10 @@
 package com.convocatis.app.ui.fragments
 
+import android.graphics.Typeface
 import android.os.Bundle
+import android.text.SpannableString
+import android.text.Spanned
+import android.text.style.StyleSpan
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
@@ -10,23 +14,32 @@ import android.widget.LinearLayout
 import android.widget.TextView
 import androidx.core.content.ContextCompat
 import androidx.fragment.app.Fragment
+import androidx.fragment.app.viewModels
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.lifecycleScope
+import androidx.lifecycle.repeatOnLifecycle
+import androidx.recyclerview.widget.DiffUtil
 import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.ListAdapter
 import androidx.recyclerview.widget.RecyclerView
-import com.convocatis.app.ConvocatisApplication
 import com.convocatis.app.MainActivity
 import com.convocatis.app.R
 import com.convocatis.app.database.entity.TextEntity
-import com.convocatis.app.ui.dialogs.CategoryFilterDialog
-import com.convocatis.app.utils.FavoritesManager
+import com.convocatis.app.search.SearchTextIndex
+import com.convocatis.app.ui.dialogs.ProgramsDialog
+import com.convocatis.app.ui.views.LetterRailView
 import com.convocatis.app.utils.TextTypesParser
+import com.convocatis.app.viewmodel.TextListViewModel
+import com.convocatis.app.viewmodel.TextListViewModel.AlphabetGroup
 import kotlinx.coroutines.launch
 
 class TextsFragment : Fragment() {
 
     private lateinit var recyclerView: RecyclerView
     private lateinit var adapter: TextsAdapter
-    private lateinit var favoritesManager: FavoritesManager
-    private lateinit var prefs: android.content.SharedPreferences
+    private lateinit var letterRail: LetterRailView
+    private lateinit var letterBubble: TextView
+    private val viewModel: TextListViewModel by viewModels()
 
     // Navigation buttons
     private lateinit var btnBackToParent: TextView
@@ -43,75 +56,24 @@ class TextsFragment : Fragment() {
     private lateinit var btnNext: Button
     private lateinit var btnLast: Button
 
-    private var sortAscending = true
-    private var showOnlyFavorites = false
-    private var searchTerm = ""
-    private var currentFilter: TextTypesParser.CategoryFilter = TextTypesParser.CategoryFilter.all()
-    private var allTexts: List<TextEntity> = emptyList() // Cache all texts for category filtering
+    // Last rendered state (category dropdown, alphabet buttons)
+    private var currentState: TextListViewModel.TextListState? = null
+    private var renderedAlphabet: List<AlphabetGroup>? = null
 
-    // Pagination state
-    private var currentAlphabetFilter: Char? = null
-    private var currentAlphabetGroup: AlphabetGroup? = null
-    private var currentPage: Int = 0
-    private var filteredTextsCache: List<TextEntity> = emptyList()
+    // Alphabet buttons ("Visi" has no group) and the one highlighted for the visible rows
+    private val alphabetButtons = mutableListOf<Pair<AlphabetGroup?, TextView>>()
+    private var highlightedButton: TextView? = null
 
-    /**
-     * Data class for alphabet groups (single letter or combined letters like A-B)
-     */
-    data class AlphabetGroup(val letters: List<Char>, val count: Int) {
-        fun getLabel(): String = if (letters.size == 1) letters[0].toString() else "${letters.first()}-${letters.last()}"
-        fun matches(char: Char): Boolean = letters.contains(char)
-    }
+    // Scroll anchor to restore once the list is shown again (kept in TextListViewModel)
+    private var pendingAnchor: TextListViewModel.ScrollAnchor? = null
 
-    // Scroll position restoration
-    private var scrollPosition: Int = 0
-    private var scrollOffset: Int = 0
+    // Alphabet jump to another page - position to scroll to once that page is shown
+    private var pendingJumpPage = -1
+    private var pendingJumpPosition = 0
 
     companion object {
-        // SharedPreferences keys
-        private const val PREF_LAST_FILTER_TYPE = "last_filter_type"
-        private const val PREF_LAST_FILTER_CODE = "last_filter_code"
-        private const val PREF_LAST_FILTER_DISPLAY = "last_filter_display"
-        private const val PREF_LAST_ALPHABET_FILTER = "last_alphabet_filter"
-        private const val PREF_LAST_PAGE = "last_page"
-
         // Pagination configuration - EASY TO MODIFY
-        private const val PAGINATION_THRESHOLD = 100  // Show pagination if more than this many items
-        private const val ITEMS_PER_PAGE_THRESHOLD = 20  // If letter has more than this, use pagination
-        private const val ITEMS_PER_PAGE = 100  // Items per page
         private const val ALPHABET_ROW_THRESHOLD = 17  // Split alphabet into 2 rows if > this many letters
-
-        // State keys for orientation change
-        private const val STATE_ALPHABET_FILTER = "state_alphabet_filter"
-        private const val STATE_CURRENT_PAGE = "state_current_page"
-        private const val STATE_SCROLL_POSITION = "state_scroll_position"
-        private const val STATE_SCROLL_OFFSET = "state_scroll_offset"
-
-        /**
-         * Normalize character by removing diacritics (works for all European languages)
-         * Examples: ā→a, č→c, é→e, ñ→n, ö→o, ß→ss, etc.
-         */
-        fun normalizeChar(char: Char): Char {
-            val normalized = java.text.Normalizer.normalize(char.toString(), java.text.Normalizer.Form.NFD)
-            // Remove all diacritical marks (Unicode category "NonSpacingMark")
-            val withoutDiacritics = normalized.replace("\\p{Mn}".toRegex(), "")
-            // Handle special cases like ß → ss, œ → oe, æ → ae
-            return when (withoutDiacritics.lowercase()) {
-                "ß" -> 's'
-                "œ" -> 'o'
-                "æ" -> 'a'
-                else -> withoutDiacritics.firstOrNull()?.lowercaseChar() ?: char.lowercaseChar()
-            }
-        }
-
-        /**
-         * Normalize string for sorting (removes diacritics from all characters)
-         */
-        fun normalizeString(str: String): String {
-            val normalized = java.text.Normalizer.normalize(str, java.text.Normalizer.Form.NFD)
-            // Remove all diacritical marks
-            return normalized.replace("\\p{Mn}".toRegex(), "").lowercase()
-        }
     }
 
     override fun onCreateView(
@@ -121,25 +83,16 @@ class TextsFragment : Fragment() {
     ): View? {
         val view = inflater.inflate(R.layout.fragment_texts, container, false)
 
-        favoritesManager = FavoritesManager(requireContext())
-        prefs = requireContext().getSharedPreferences("convocatis_prefs", android.content.Context.MODE_PRIVATE)
-
-        // Restore state from orientation change if available
-        if (savedInstanceState != null) {
-            val letterString = savedInstanceState.getString(STATE_ALPHABET_FILTER)
-            currentAlphabetFilter = letterString?.firstOrNull()
-            currentPage = savedInstanceState.getInt(STATE_CURRENT_PAGE, 0)
-            scrollPosition = savedInstanceState.getInt(STATE_SCROLL_POSITION, 0)
-            scrollOffset = savedInstanceState.getInt(STATE_SCROLL_OFFSET, 0)
-        } else {
-            // Restore last filter from SharedPreferences (normal startup)
-            restoreLastFilter()
-            restoreLastPaginationState()
-        }
+        // Returning from the reader or after a configuration change - the computed list
+        // and the scroll anchor survive in TextListViewModel
+        pendingAnchor = viewModel.scrollAnchor
 
         // Initialize views
         recyclerView = view.findViewById(R.id.recyclerView)
         recyclerView.layoutManager = LinearLayoutManager(requireContext())
+        letterRail = view.findViewById(R.id.letterRail)
+        letterBubble = view.findViewById(R.id.letterBubble)
+        setupLetterRail()
 
         btnBackToParent = view.findViewById(R.id.btnBackToParent)
         btnResetToAll = view.findViewById(R.id.btnResetToAll)
@@ -161,247 +114,139 @@ class TextsFragment : Fragment() {
         setupPaginationButtons()
 
         adapter = TextsAdapter(
-            favoritesManager = favoritesManager,
             onItemClick = { textEntity ->
                 // Save current scroll position before opening text
-                val layoutManager = recyclerView.layoutManager as? LinearLayoutManager
-                layoutManager?.let {
-                    scrollPosition = it.findFirstVisibleItemPosition()
-                    val view = it.findViewByPosition(scrollPosition)
-                    scrollOffset = view?.top ?: 0
-                }
-                savePaginationState()
-                (activity as? MainActivity)?.showTextReadingFragment(textEntity)
+                saveScrollAnchor()
+                // Reader opens on the first match of the search the row was found with
+                val searchTerm = currentState?.searchTerm?.takeIf { it.isNotBlank() }
+                // Reader loads by RID - rows with content spare it the query
+                // (cold start snapshot rows have none)
+                if (currentState?.fromSnapshot != true) viewModel.cacheText(textEntity)
+                // The whole result (all pages) is the reading order for swiping between texts
+                val sequence = viewModel.readingOrder()
+                (activity as? MainActivity)?.showTextReadingFragment(
+                    textEntity.rid,
+                    textEntity.languageCode,
+                    searchTerm,
+                    sequence
+                )
             },
             onFavoriteClick = { textEntity ->
-                favoritesManager.toggleFavorite(textEntity.rid)
-                loadTexts() // Refresh list
-            }
+                viewModel.toggleFavorite(textEntity.rid)
+            },
+            onItemLongClick = { textEntity ->
+                ProgramsDialog.newInstance(addRid = textEntity.rid).show(childFragmentManager, "ProgramsDialog")
+            },
+            snippetOf = viewModel::snippetFor
         )
         recyclerView.adapter = adapter
 
+        // Highlight the alphabet button of the rows being scrolled past
+        recyclerView.addOnScrollListener(object : RecyclerView.OnScrollListener() {
+            override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                updateAlphabetHighlight()
+                updateLetterRailHighlight()
+            }
+        })
+
         return view
     }
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
         super.onViewCreated(view, savedInstanceState)
 
-        // Load texts from database
-        loadTexts()
-
-        // Listen for search from MainActivity
-        (activity as? MainActivity)?.onSearchTermChangedListener = { term ->
-            searchTerm = term
-            loadTexts()
-        }
-    }
-
-    private fun loadTexts() {
-        // Check if view is still available
-        if (!isAdded || view == null) {
-            return
-        }
-
-        val database = ConvocatisApplication.getInstance().database
-        database.textDao().getAllTexts().observe(viewLifecycleOwner) { allTexts ->
-            // Cache all texts for category filtering
-            this@TextsFragment.allTexts = allTexts
-
-            var filteredTexts = allTexts.toMutableList()
+        // Draw the retained list in the first frame, without waiting for the collector
+        viewModel.state.value?.let { render(it) }
 
-            // Filter by search term
-            if (searchTerm.isNotEmpty()) {
-                filteredTexts = filteredTexts.filter {
-                    it.title.contains(searchTerm, ignoreCase = true) ||
-                    it.rawContent.contains(searchTerm, ignoreCase = true)
-                }.toMutableList()
-            }
-
-            // Filter by category (hierarchical: Type and/or Code)
-            filteredTexts = when {
-                // Filter by both Type and Code
-                currentFilter.type != null && currentFilter.code != null -> {
-                    filteredTexts.filter {
-                        // Support comma-separated codes (e.g., "21,22,1")
-                        val codes = it.categoryCode?.split(",")?.map { code -> code.trim() } ?: emptyList()
-                        it.categoryType == currentFilter.type &&
-                            (it.categoryCode == currentFilter.code || codes.contains(currentFilter.code))
-                    }.toMutableList()
+        // Render list state - filtering, sorting and paging run in TextListViewModel
+        viewLifecycleOwner.lifecycleScope.launch {
+            viewLifecycleOwner.repeatOnLifecycle(Lifecycle.State.STARTED) {
+                viewModel.state.collect { state ->
+                    if (state != null) render(state)
                 }
-                // Filter by Type only
-                currentFilter.type != null -> {
-                    filteredTexts.filter { it.categoryType == currentFilter.type }.toMutableList()
-                }
-                // No filter (show all)
-                else -> filteredTexts
-            }
-
-            // Sort alphabetically using normalized strings (diacritics sorted under base letters)
-            filteredTexts = if (sortAscending) {
-                filteredTexts.sortedWith(compareBy(
-                    { normalizeString(it.title.lowercase()) },  // Primary: normalized title
-                    { it.title.lowercase() }  // Secondary: original title (for same base letter)
-                )).toMutableList()
-            } else {
-                filteredTexts.sortedWith(compareByDescending<TextEntity>(
-                    { normalizeString(it.title.lowercase()) }
-                ).thenByDescending { it.title.lowercase() }).toMutableList()
-            }
-
-            // If favorites filter is ON, sort favorites to top (all texts still visible)
-            if (showOnlyFavorites) {
-                val favoriteRids = favoritesManager.getFavorites()
-                filteredTexts = filteredTexts.sortedByDescending { favoriteRids.contains(it.rid) }.toMutableList()
-            }
-
-            // Add synthetic advertisement entries at the top (always shown, regardless of filters)
-            // Only add if search term is empty (so user can search without seeing ads)
-            if (searchTerm.isEmpty()) {
-                val adEntryLv = createAdvertisementEntry("lv")
-                val adEntryEn = createAdvertisementEntry("en")
-
-                // Insert at beginning
-                filteredTexts.add(0, adEntryLv)
-                filteredTexts.add(1, adEntryEn)
             }
+        }
 
-            // Store filtered texts for pagination
-            filteredTextsCache = filteredTexts
-
-            // Apply alphabet filter and pagination
-            val paginatedTexts = applyAlphabetFilterAndPagination(filteredTexts)
-
-            adapter.submitList(paginatedTexts)
-
-            // Update alphabet and pagination UI
-            updateAlphabetFilter(filteredTexts)
-            updatePaginationUI()
-            updateNavigationButtons()
-
-            // Restore scroll position after data is loaded
-            recyclerView.post {
-                if (scrollPosition > 0 || scrollOffset != 0) {
-                    val layoutManager = recyclerView.layoutManager as? LinearLayoutManager
-                    layoutManager?.scrollToPositionWithOffset(scrollPosition, scrollOffset)
-                    // Reset scroll position after restoration (only restore once)
-                    scrollPosition = 0
-                    scrollOffset = 0
+        // Title suggestions for the search field
+        viewLifecycleOwner.lifecycleScope.launch {
+            viewLifecycleOwner.repeatOnLifecycle(Lifecycle.State.STARTED) {
+                viewModel.suggestions.collect { suggestions ->
+                    (activity as? MainActivity)?.showSearchSuggestions(suggestions)
                 }
             }
         }
-    }
 
-    /**
-     * Apply alphabet filter and pagination to the list
-     */
-    private fun applyAlphabetFilterAndPagination(texts: List<TextEntity>): List<TextEntity> {
-        // Filter by alphabet group if selected (using normalized characters)
-        val alphabetFiltered = if (currentAlphabetGroup != null) {
-            texts.filter {
-                val firstChar = it.title.firstOrNull() ?: return@filter false
-                val normalizedChar = normalizeChar(firstChar).uppercaseChar()
-                currentAlphabetGroup!!.matches(normalizedChar)
-            }
-        } else {
-            texts
+        // Listen for search from MainActivity
+        (activity as? MainActivity)?.onSearchTermChangedListener = { term ->
+            viewModel.setSearchTerm(term)
         }
 
-        // Check if we need pagination for current alphabet filter
-        if (alphabetFiltered.size > ITEMS_PER_PAGE_THRESHOLD) {
-            // Calculate pagination
-            val totalPages = (alphabetFiltered.size + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE
-            val startIndex = currentPage * ITEMS_PER_PAGE
-            val endIndex = minOf(startIndex + ITEMS_PER_PAGE, alphabetFiltered.size)
-
-            return if (startIndex < alphabetFiltered.size) {
-                alphabetFiltered.subList(startIndex, endIndex)
-            } else {
-                emptyList()
+        // Suggestion picked - open that text directly
+        (activity as? MainActivity)?.onSuggestionSelectedListener = { rid ->
+            saveScrollAnchor()
+            viewLifecycleOwner.lifecycleScope.launch {
+                viewModel.getText(rid)?.let { text ->
+                    (activity as? MainActivity)?.showTextReadingFragment(text.rid, text.languageCode)
+                }
             }
         }
-
-        return alphabetFiltered
     }
 
-    /**
-     * Create smart alphabet groups - combine letters with < 20 texts until group has >= 30
-     */
-    private fun createAlphabetGroups(texts: List<TextEntity>): List<AlphabetGroup> {
-        // Count texts for each letter
-        val letterCounts = mutableMapOf<Char, Int>()
-        texts.forEach { text ->
-            val firstChar = text.title.firstOrNull() ?: return@forEach
-            val normalizedChar = normalizeChar(firstChar).uppercaseChar()
-            if (normalizedChar in 'A'..'Z') {
-                letterCounts[normalizedChar] = (letterCounts[normalizedChar] ?: 0) + 1
-            }
-        }
-
-        // Sort letters
-        val sortedLetters = letterCounts.keys.sorted()
-        if (sortedLetters.isEmpty()) return emptyList()
-
-        // Create groups
-        val groups = mutableListOf<AlphabetGroup>()
-        var currentGroup = mutableListOf<Char>()
-        var currentCount = 0
-
-        sortedLetters.forEach { letter ->
-            val count = letterCounts[letter] ?: 0
-
-            if (count >= 20) {
-                // If letter has >= 20 texts, finalize current group first
-                if (currentGroup.isNotEmpty()) {
-                    groups.add(AlphabetGroup(currentGroup.toList(), currentCount))
-                    currentGroup.clear()
-                    currentCount = 0
-                }
-                // Add this letter as separate group
-                groups.add(AlphabetGroup(listOf(letter), count))
+    private fun render(state: TextListViewModel.TextListState) {
+        // Collector re-delivers the state already drawn from onViewCreated
+        if (state === currentState) return
+        currentState = state
+
+        // Differences are computed in the background, restore scroll once they are applied
+        adapter.submitList(state.pageItems) {
+            if (pendingJumpPage == state.page) {
+                // Alphabet jump landed on this page
+                pendingJumpPage = -1
+                (recyclerView.layoutManager as? LinearLayoutManager)
+                    ?.scrollToPositionWithOffset(pendingJumpPosition, 0)
             } else {
-                // If letter has < 20 texts, add to current group
-                currentGroup.add(letter)
-                currentCount += count
-
-                // If group has >= 30 texts, finalize it
-                if (currentCount >= 30) {
-                    groups.add(AlphabetGroup(currentGroup.toList(), currentCount))
-                    currentGroup.clear()
-                    currentCount = 0
-                }
+                pendingAnchor?.let { anchor -> restoreScrollAnchor(anchor, state) }
             }
         }
 
-        // Add remaining group
-        if (currentGroup.isNotEmpty()) {
-            groups.add(AlphabetGroup(currentGroup.toList(), currentCount))
-        }
-
-        return groups
+        // Update alphabet and pagination UI
+        updateAlphabetFilter(state)
+        updateLetterRail(state)
+        updatePaginationUI(state)
+        updateNavigationButtons()
     }
 
     /**
      * Update alphabet filter UI (Latin alphabet only, with 2-row support and full-width)
      */
-    private fun updateAlphabetFilter(texts: List<TextEntity>) {
+    private fun updateAlphabetFilter(state: TextListViewModel.TextListState) {
         // Show alphabet filter if more than threshold items
-        if (texts.size > PAGINATION_THRESHOLD) {
+        if (state.showAlphabet) {
             alphabetScrollView.visibility = View.VISIBLE
 
-            // Create smart alphabet groups
-            val alphabetGroups = createAlphabetGroups(texts)
+            // Buttons only change with the groups, the highlight follows scrolling
+            if (state.alphabetGroups == renderedAlphabet) {
+                updateAlphabetHighlight()
+                return
+            }
+            renderedAlphabet = state.alphabetGroups
+
+            // Smart alphabet groups (computed in TextListViewModel)
+            val alphabetGroups = state.alphabetGroups
 
             // Clear both rows
             alphabetContainer.removeAllViews()
             alphabetContainerRow2.removeAllViews()
             alphabetContainerRow2.visibility = View.GONE
+            alphabetButtons.clear()
+            highlightedButton = null
 
             // Determine if we should use full width (>=10 groups total)
             val totalButtons = alphabetGroups.size + 1  // +1 for "Visi"
             val useFullWidth = totalButtons >= 10
 
             // Add "Visi" button to first row
-            addAlphabetButton(null, "Visi", alphabetGroups.isNotEmpty(), alphabetContainer, useFullWidth)
+            addAlphabetButton(null, "Visi", alphabetGroups.isNotEmpty(), false, alphabetContainer, useFullWidth)
 
             // If more than ALPHABET_ROW_THRESHOLD groups, split into 2 rows
             if (alphabetGroups.size > ALPHABET_ROW_THRESHOLD) {
@@ -409,31 +254,142 @@ class TextsFragment : Fragment() {
 
                 // First row: "Visi" + first half of groups
                 alphabetGroups.take(midPoint).forEach { group ->
-                    addAlphabetGroupButton(group, alphabetContainer, useFullWidth)
+                    addAlphabetGroupButton(group, false, alphabetContainer, useFullWidth)
                 }
 
                 // Second row: second half of groups
                 alphabetContainerRow2.visibility = View.VISIBLE
                 alphabetGroups.drop(midPoint).forEach { group ->
-                    addAlphabetGroupButton(group, alphabetContainerRow2, useFullWidth)
+                    addAlphabetGroupButton(group, false, alphabetContainerRow2, useFullWidth)
                 }
             } else {
                 // Single row: "Visi" + all groups
                 alphabetGroups.forEach { group ->
-                    addAlphabetGroupButton(group, alphabetContainer, useFullWidth)
+                    addAlphabetGroupButton(group, false, alphabetContainer, useFullWidth)
                 }
             }
+
+            updateAlphabetHighlight()
         } else {
             alphabetScrollView.visibility = View.GONE
-            currentAlphabetFilter = null
-            currentAlphabetGroup = null
+            renderedAlphabet = null
+            alphabetButtons.clear()
+            highlightedButton = null
+        }
+    }
+
+    /**
+     * Letter rail: dragging jumps to the first row of the letter under the finger
+     * (anywhere in the result list), with the letter shown in a bubble
+     */
+    private fun setupLetterRail() {
+        letterRail.onSectionSelected = { section ->
+            currentState?.letterIndex?.let { letterIndex ->
+                letterBubble.text = letterIndex.getSections().getOrNull(section)?.toString()
+                jumpToRow(letterIndex.getPositionForSection(section))
+            }
+        }
+        letterRail.onDragStateChanged = { dragging ->
+            letterBubble.visibility = if (dragging) View.VISIBLE else View.GONE
+        }
+    }
+
+    /**
+     * Rail sections are the letters of the result list - none for relevance-ranked search
+     */
+    private fun updateLetterRail(state: TextListViewModel.TextListState) {
+        val sections = state.letterIndex.getSections()
+        val show = sections.size > 1
+        letterRail.visibility = if (show) View.VISIBLE else View.GONE
+        // Rows end before the rail
+        recyclerView.setPaddingRelative(0, 0, if (show) letterRail.layoutParams.width else 0, recyclerView.paddingBottom)
+        if (!show) return
+
+        letterRail.setSections(sections)
+        updateLetterRailHighlight()
+    }
+
+    /**
+     * Highlight the rail letter of the first visible row
+     */
+    private fun updateLetterRailHighlight() {
+        val state = currentState ?: return
+        if (letterRail.visibility != View.VISIBLE) return
+
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        val firstVisible = layoutManager.findFirstVisibleItemPosition()
+        if (firstVisible == RecyclerView.NO_POSITION) return
+        letterRail.setCurrentSection(state.letterIndex.getSectionForPosition(state.pageStart + firstVisible))
+    }
+
+    /**
+     * Jump to row of the whole result list (alphabet buttons, letter rail)
+     * Same page - just scroll; other page - scroll once that page is rendered
+     */
+    private fun jumpToRow(row: Int) {
+        val state = currentState ?: return
+        val position = viewModel.jumpToRow(row)
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+
+        val targetPage = if (state.totalPages > 1) row / TextListViewModel.ITEMS_PER_PAGE else 0
+        if (targetPage == state.page) {
+            layoutManager.scrollToPositionWithOffset(position, 0)
+        } else {
+            pendingJumpPage = targetPage
+            pendingJumpPosition = position
+        }
+    }
+
+    /**
+     * Highlight alphabet button of the first visible row (letter index lookup)
+     */
+    private fun updateAlphabetHighlight() {
+        val state = currentState ?: return
+        if (alphabetButtons.isEmpty()) return
+
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        val firstVisible = layoutManager.findFirstVisibleItemPosition()
+        val letter = if (firstVisible != RecyclerView.NO_POSITION) {
+            state.letterIndex.letterAt(state.pageStart + firstVisible)
+        } else {
+            null
+        }
+
+        // Before the first letter (info entries, pinned favorites) - "Visi"
+        val button = alphabetButtons.firstOrNull { (group, _) ->
+            if (letter == null) group == null else group?.matches(letter) == true
+        }?.second
+        if (button === highlightedButton) return
+
+        highlightedButton?.let { setAlphabetButtonSelected(it, false) }
+        button?.let { setAlphabetButtonSelected(it, true) }
+        highlightedButton = button
+    }
+
+    /**
+     * Link style - blue/purple color, bold and underlined when selected
+     */
+    private fun setAlphabetButtonSelected(button: TextView, isSelected: Boolean) {
+        button.setTextColor(
+            if (isSelected) ContextCompat.getColor(requireContext(), R.color.purple_700)
+            else ContextCompat.getColor(requireContext(), R.color.purple_500)
+        )
+
+        // Bold when selected
+        button.setTypeface(null, if (isSelected) android.graphics.Typeface.BOLD else android.graphics.Typeface.NORMAL)
+
+        // Underline when selected
+        button.paintFlags = if (isSelected) {
+            button.paintFlags or android.graphics.Paint.UNDERLINE_TEXT_FLAG
+        } else {
+            button.paintFlags and android.graphics.Paint.UNDERLINE_TEXT_FLAG.inv()
         }
     }
 
     /**
      * Add alphabet group button to the specified container
      */
-    private fun addAlphabetGroupButton(group: AlphabetGroup, container: LinearLayout, useFullWidth: Boolean) {
+    private fun addAlphabetGroupButton(group: AlphabetGroup, isSelected: Boolean, container: LinearLayout, useFullWidth: Boolean) {
         val button = TextView(requireContext()).apply {
             text = group.getLabel()
             isEnabled = true
@@ -450,32 +406,13 @@ class TextsFragment : Fragment() {
             }
 
             // Highlight if selected - link style (underlined, colored)
-            val isSelected = currentAlphabetGroup == group
-
-            // Link style - blue/purple color, underlined when selected
-            setTextColor(
-                if (isSelected) ContextCompat.getColor(requireContext(), R.color.purple_700)
-                else ContextCompat.getColor(requireContext(), R.color.purple_500)
-            )
-
-            // Bold when selected
-            setTypeface(null, if (isSelected) android.graphics.Typeface.BOLD else android.graphics.Typeface.NORMAL)
-
-            // Underline when selected
-            paintFlags = if (isSelected) {
-                paintFlags or android.graphics.Paint.UNDERLINE_TEXT_FLAG
-            } else {
-                paintFlags and android.graphics.Paint.UNDERLINE_TEXT_FLAG.inv()
-            }
+            setAlphabetButtonSelected(this, isSelected)
 
             setBackgroundColor(ContextCompat.getColor(requireContext(), android.R.color.transparent))
 
+            // Jump to the group's first row, the list itself stays unfiltered
             setOnClickListener {
-                currentAlphabetGroup = group
-                currentAlphabetFilter = null  // Legacy field, keep for compatibility
-                currentPage = 0
-                savePaginationState()
-                loadTexts()
+                jumpToRow(group.firstRow)
             }
         }
 
@@ -497,12 +434,13 @@ class TextsFragment : Fragment() {
         }
 
         container.addView(button, params)
+        alphabetButtons.add(group to button)
     }
 
     /**
      * Add alphabet button to the specified container (compact, link-style, full-width if many letters)
      */
-    private fun addAlphabetButton(letter: Char?, label: String, enabled: Boolean, container: LinearLayout, useFullWidth: Boolean) {
+    private fun addAlphabetButton(letter: Char?, label: String, enabled: Boolean, isSelected: Boolean, container: LinearLayout, useFullWidth: Boolean) {
         val button = TextView(requireContext()).apply {
             text = label
             isEnabled = enabled
@@ -519,32 +457,12 @@ class TextsFragment : Fragment() {
             }
 
             // Highlight if selected - link style (underlined, colored)
-            val isSelected = (letter == null && currentAlphabetGroup == null)
-
-            // Link style - blue/purple color, underlined when selected
-            setTextColor(
-                if (isSelected) ContextCompat.getColor(requireContext(), R.color.purple_700)
-                else ContextCompat.getColor(requireContext(), R.color.purple_500)
-            )
-
-            // Bold when selected
-            setTypeface(null, if (isSelected) android.graphics.Typeface.BOLD else android.graphics.Typeface.NORMAL)
-
-            // Underline when selected
-            paintFlags = if (isSelected) {
-                paintFlags or android.graphics.Paint.UNDERLINE_TEXT_FLAG
-            } else {
-                paintFlags and android.graphics.Paint.UNDERLINE_TEXT_FLAG.inv()
-            }
+            setAlphabetButtonSelected(this, isSelected)
 
             setBackgroundColor(ContextCompat.getColor(requireContext(), android.R.color.transparent))
 
             setOnClickListener {
-                currentAlphabetFilter = null
-                currentAlphabetGroup = null
-                currentPage = 0
-                savePaginationState()
-                loadTexts()
+                jumpToRow(0)
             }
         }
 
@@ -566,28 +484,15 @@ class TextsFragment : Fragment() {
         }
 
         container.addView(button, params)
+        alphabetButtons.add(null to button)
     }
 
     /**
      * Update pagination UI (buttons and page info)
      */
-    private fun updatePaginationUI() {
-        val alphabetFiltered = if (currentAlphabetGroup != null) {
-            filteredTextsCache.filter {
-                val firstChar = it.title.firstOrNull() ?: return@filter false
-                val normalizedChar = normalizeChar(firstChar).uppercaseChar()
-                currentAlphabetGroup!!.matches(normalizedChar)
-            }
-        } else {
-            filteredTextsCache
-        }
-
-        // Calculate total pages
-        val totalPages = if (alphabetFiltered.size > ITEMS_PER_PAGE_THRESHOLD) {
-            (alphabetFiltered.size + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE
-        } else {
-            1
-        }
+    private fun updatePaginationUI(state: TextListViewModel.TextListState) {
+        val totalPages = state.totalPages
+        val currentPage = state.page
 
         // Show pagination only if more than 1 page
         if (totalPages > 1) {
@@ -635,48 +540,16 @@ class TextsFragment : Fragment() {
      * Navigate to parent category
      */
     private fun navigateToParentCategory() {
-        when {
-            // If filtered by both Type and Code, go back to Type only
-            currentFilter.type != null && currentFilter.code != null -> {
-                currentFilter = TextTypesParser.CategoryFilter(
-                    type = currentFilter.type,
-                    code = null,
-                    displayText = "Type ${currentFilter.type}"
-                )
-            }
-            // If filtered by Type only, go back to All
-            currentFilter.type != null -> {
-                currentFilter = TextTypesParser.CategoryFilter.all()
-            }
-            // Already at top level, do nothing
-            else -> return
+        if (viewModel.navigateToParentCategory()) {
+            updateNavigationButtons()
         }
-
-        // Reset pagination when changing filter
-        currentAlphabetFilter = null
-        currentAlphabetGroup = null
-        currentPage = 0
-
-        saveLastFilter()
-        savePaginationState()
-        loadTexts()
-        updateNavigationButtons()
     }
 
     /**
-     * Reset to show all texts (clear category filter, keep alphabet/pagination)
+     * Reset to show all texts (clear category filter, alphabet and pagination)
      */
     private fun resetToAllTexts() {
-        currentFilter = TextTypesParser.CategoryFilter.all()
-
-        // Reset alphabet filter and pagination too
-        currentAlphabetFilter = null
-        currentAlphabetGroup = null
-        currentPage = 0
-
-        saveLastFilter()
-        savePaginationState()
-        loadTexts()
+        viewModel.setCategoryFilter(TextTypesParser.CategoryFilter.all())
         updateNavigationButtons()
     }
 
@@ -684,6 +557,8 @@ class TextsFragment : Fragment() {
      * Update navigation button appearance based on current filter state
      */
     private fun updateNavigationButtons() {
+        val currentFilter = viewModel.categoryFilter.value
+
         // Show "Back" button only if we're in main category or subcategory
         val canGoBack = currentFilter.type != null
         btnBackToParent.visibility = if (canGoBack) View.VISIBLE else View.GONE
@@ -697,189 +572,68 @@ class TextsFragment : Fragment() {
      * Setup pagination button listeners
      */
     private fun setupPaginationButtons() {
-        btnFirst.setOnClickListener {
-            currentPage = 0
-            savePaginationState()
-            loadTexts()
-        }
-
-        btnPrev.setOnClickListener {
-            if (currentPage > 0) {
-                currentPage--
-                savePaginationState()
-                loadTexts()
-            }
-        }
-
-        btnNext.setOnClickListener {
-            val alphabetFiltered = if (currentAlphabetGroup != null) {
-                filteredTextsCache.filter {
-                    val firstChar = it.title.firstOrNull() ?: return@filter false
-                    val normalizedChar = normalizeChar(firstChar).uppercaseChar()
-                    currentAlphabetGroup!!.matches(normalizedChar)
-                }
-            } else {
-                filteredTextsCache
-            }
-            val totalPages = (alphabetFiltered.size + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE
-
-            if (currentPage < totalPages - 1) {
-                currentPage++
-                savePaginationState()
-                loadTexts()
-            }
-        }
-
-        btnLast.setOnClickListener {
-            val alphabetFiltered = if (currentAlphabetGroup != null) {
-                filteredTextsCache.filter {
-                    val firstChar = it.title.firstOrNull() ?: return@filter false
-                    val normalizedChar = normalizeChar(firstChar).uppercaseChar()
-                    currentAlphabetGroup!!.matches(normalizedChar)
-                }
-            } else {
-                filteredTextsCache
-            }
-            val totalPages = (alphabetFiltered.size + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE
-
-            currentPage = totalPages - 1
-            savePaginationState()
-            loadTexts()
-        }
+        btnFirst.setOnClickListener { viewModel.firstPage() }
+        btnPrev.setOnClickListener { viewModel.previousPage() }
+        btnNext.setOnClickListener { viewModel.nextPage() }
+        btnLast.setOnClickListener { viewModel.lastPage() }
     }
 
-    /**
-     * Save pagination state to SharedPreferences
-     */
-    private fun savePaginationState() {
-        prefs.edit().apply {
-            currentAlphabetFilter?.let { putString(PREF_LAST_ALPHABET_FILTER, it.toString()) }
-                ?: remove(PREF_LAST_ALPHABET_FILTER)
-            putInt(PREF_LAST_PAGE, currentPage)
-            apply()
-        }
+    override fun onDestroyView() {
+        // Keep scroll position for when the view is recreated (back from the reader)
+        saveScrollAnchor()
+
+        // New view gets new (empty) alphabet containers and renders the retained state again
+        renderedAlphabet = null
+        alphabetButtons.clear()
+        highlightedButton = null
+        currentState = null
+        super.onDestroyView()
     }
 
     /**
-     * Restore pagination state from SharedPreferences
+     * Save instance state for orientation changes (scroll anchor goes to TextListViewModel)
      */
-    private fun restoreLastPaginationState() {
-        val letterString = prefs.getString(PREF_LAST_ALPHABET_FILTER, null)
-        currentAlphabetFilter = letterString?.firstOrNull()
-        currentPage = prefs.getInt(PREF_LAST_PAGE, 0)
+    override fun onSaveInstanceState(outState: Bundle) {
+        super.onSaveInstanceState(outState)
+        if (view != null) saveScrollAnchor()
     }
 
     /**
-     * Save instance state for orientation changes and text reading navigation
+     * Remember first visible row (by RID) and its offset
      */
-    override fun onSaveInstanceState(outState: Bundle) {
-        super.onSaveInstanceState(outState)
-        currentAlphabetFilter?.let { outState.putString(STATE_ALPHABET_FILTER, it.toString()) }
-        outState.putInt(STATE_CURRENT_PAGE, currentPage)
-
-        // Save scroll position
-        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager
-        layoutManager?.let {
-            val position = it.findFirstVisibleItemPosition()
-            val view = it.findViewByPosition(position)
-            val offset = view?.top ?: 0
-            outState.putInt(STATE_SCROLL_POSITION, position)
-            outState.putInt(STATE_SCROLL_OFFSET, offset)
-        }
+    private fun saveScrollAnchor() {
+        val layoutManager = recyclerView.layoutManager as? LinearLayoutManager ?: return
+        val position = layoutManager.findFirstVisibleItemPosition()
+        if (position == RecyclerView.NO_POSITION) return
+        val rows = currentState?.pageItems ?: return
+        if (position >= rows.size) return
+
+        val offset = layoutManager.findViewByPosition(position)?.top ?: 0
+        viewModel.scrollAnchor = TextListViewModel.ScrollAnchor(rows[position].text.rid, offset)
     }
 
     /**
-     * Create synthetic advertisement entry
+     * Scroll back to the anchored row if it is on the current page (only restore once)
      */
-    private fun createAdvertisementEntry(languageCode: String): TextEntity {
-        return if (languageCode == "lv") {
-            TextEntity(
-                rid = -1L, // Negative RID to avoid conflicts
-                title = "⭐ Informācija un atgriezeniskā saite",
-                rawContent = """
-                    >>Sveicināti Convocatis!<<
-                    Ja vēlies šādu programmu savam pasākumam, vai tev ir kādi ieteikumi vai problēmas ar šo programmu, raksti e-pastu:
-                    <a href="mailto:aivarszar@gmail.com"><b>aivarszar@gmail.com</b></a>
-                    <h3>Par šo programmu</h3>
-                    Convocatis ir radīta, lai palīdzētu organizēt un lasīt lūgšanu un dziesmu tekstus pasākumos.
-                    <ul>
-                      <li>✅ Vienkārša navigācija</li>
-                      <li>✅ Tekstu meklēšana un šķirošana</li>
-                      <li>✅ Izlūkotāko tekstu saglabāšana</li>
-                      <li>✅ Daudzu lapu un atkārtošanas atbalsts</li>
-                    </ul>
-                    <h3>Kā var palīdzēt?</h3>
-                    <ul>
-                      <li>💬 Nosūti savus ieteikumus</li>
-                      <li>🐛 Ziņo par problēmām</li>
-                      <li>⭐ Novērtē aplikāciju</li>
-                      <li>📤 Dalies ar draugiem</li>
-                    </ul>
-                    <br/>
-                    Izstrādātājs: <a href="http://convocatis.net"><b>Convocatis</b></a><br/>
-                    <a href="https://www.madonasdraudze.lv/Avize_2020/1.pdf"><b>Kalnā par Convocatis</b></a>
-
-                    <br/><br/>
-                    <img src="https://png.pngtree.com/png-vector/20211103/ourmid/pngtree-christian-religious-symbol-cross-brush-illustration-png-image_4020809.png" />
-
-                    <p><small>Versija 2.0 </small></p>
-                """.trimIndent(),
-                categoryType = 0,
-                categoryCode = null,
-                languageCode = "lv"
-            )
-        } else {
-            TextEntity(
-                rid = -2L, // Different negative RID
-                title = "⭐ Information and Feedback",
-                rawContent = """
-                    >>Welcome to Convocatis!<<
-                    If you want such a program for your event, or you have any suggestions or problems with this program, write an email to:
-                    <a href="mailto:aivarszar@gmail.com"><b>aivarszar@gmail.com</b></a>
-                    ---
-                    <h3>About this app</h3>
-                    Convocatis is designed to help organize and read prayer and song texts at events.
-                    <ul>
-                      <li>✅ Simple navigation</li>
-                      <li>✅ Text search and sorting</li>
-                      <li>✅ Save favorite texts</li>
-                      <li>✅ Multi-page and repetition support</li>
-                    </ul>
-                    <h3>How can you help?</h3>
-                    <ul>
-                      <li>💬 Send your suggestions</li>
-                      <li>🐛 Report problems</li>
-                      <li>⭐ Rate the app</li>
-                      <li>📤 Share with friends</li>
-                    </ul>
-                    <p><small>Version 2.0</small></p>
-                """.trimIndent(),
-                categoryType = 0,
-                categoryCode = null,
-                languageCode = "en"
-            )
-        }
+    private fun restoreScrollAnchor(anchor: TextListViewModel.ScrollAnchor, state: TextListViewModel.TextListState) {
+        pendingAnchor = null
+        val position = state.pageItems.indexOfFirst { it.text.rid == anchor.rid }
+        if (position < 0) return
+        (recyclerView.layoutManager as? LinearLayoutManager)
+            ?.scrollToPositionWithOffset(position, anchor.offset)
+        updateAlphabetHighlight()
     }
 
     fun toggleSort() {
-        sortAscending = !sortAscending
-        loadTexts()
+        viewModel.toggleSort()
     }
 
     fun toggleFavoritesFilter() {
-        showOnlyFavorites = !showOnlyFavorites
-        loadTexts()
+        viewModel.toggleFavoritesFilter()
     }
 
-    fun getSortAscending() = sortAscending
-    fun getShowOnlyFavorites() = showOnlyFavorites
-
-    /**
-     * Refresh data from database (for re-import)
-     */
-    fun refreshData() {
-        loadTexts()
-    }
+    fun getSortAscending() = viewModel.sortAscending
+    fun getShowOnlyFavorites() = viewModel.showOnlyFavorites
 
     /**
      * Show category filter dropdown menu
@@ -894,71 +648,65 @@ class TextsFragment : Fragment() {
                 context = requireContext(),
                 anchorView = toolbar,
                 onFilterSelected = { filter ->
-                    currentFilter = filter
-                    // Reset alphabet and pagination filters when category filter is used
-                    currentAlphabetFilter = null
-                    currentAlphabetGroup = null
-                    currentPage = 0
-                    saveLastFilter()
-                    savePaginationState()
-                    loadTexts()
+                    // Resets pagination too
+                    viewModel.setCategoryFilter(filter)
+                    updateNavigationButtons()
                 },
-                availableTexts = allTexts
+                facets = currentState?.facets
             )
-            dropdown.setCurrentFilter(currentFilter)
+            dropdown.setCurrentFilter(viewModel.categoryFilter.value)
             dropdown.show()
         }
     }
-
-
-
-
-
-
-
-
-
-
-    /**
-     * Restore last filter from SharedPreferences
-     */
-    private fun restoreLastFilter() {
-        val type = if (prefs.contains(PREF_LAST_FILTER_TYPE)) {
-            prefs.getInt(PREF_LAST_FILTER_TYPE, -1).takeIf { it != -1 }
-        } else null
-
-        val code = prefs.getString(PREF_LAST_FILTER_CODE, null)
-        val display = prefs.getString(PREF_LAST_FILTER_DISPLAY, "All") ?: "All"
-
-        currentFilter = TextTypesParser.CategoryFilter(type, code, display)
-    }
-
-    /**
-     * Save current filter to SharedPreferences
-     */
-    private fun saveLastFilter() {
-        prefs.edit().apply {
-            currentFilter.type?.let { putInt(PREF_LAST_FILTER_TYPE, it) } ?: remove(PREF_LAST_FILTER_TYPE)
-            currentFilter.code?.let { putString(PREF_LAST_FILTER_CODE, it) } ?: remove(PREF_LAST_FILTER_CODE)
-            putString(PREF_LAST_FILTER_DISPLAY, currentFilter.displayText)
-            apply()
-        }
-    }
 }
 
+/**
+ * Text list adapter
+ * Rows are diffed in the background (RID is the stable id); a favorite toggle is
+ * delivered as a payload that only updates the star of that row.
+ * Search result rows show a snippet around the match, computed on bind by [snippetOf]
+ * A long press on a row adds the text to an event program
+ */
 class TextsAdapter(
-    private val favoritesManager: FavoritesManager,
     private val onItemClick: (TextEntity) -> Unit,
-    private val onFavoriteClick: (TextEntity) -> Unit
-) : RecyclerView.Adapter<TextsAdapter.ViewHolder>() {
+    private val onFavoriteClick: (TextEntity) -> Unit,
+    private val onItemLongClick: (TextEntity) -> Unit,
+    private val snippetOf: (TextListViewModel.TextRow) -> SearchTextIndex.Snippet?
+) : ListAdapter<TextListViewModel.TextRow, TextsAdapter.ViewHolder>(DIFF_CALLBACK) {
 
-    private var texts = listOf<TextEntity>()
+    companion object {
+        private const val PAYLOAD_FAVORITE = "favorite"
+
+        private val DIFF_CALLBACK = object : DiffUtil.ItemCallback<TextListViewModel.TextRow>() {
+            override fun areItemsTheSame(
+                oldItem: TextListViewModel.TextRow,
+                newItem: TextListViewModel.TextRow
+            ): Boolean = oldItem.text.rid == newItem.text.rid
+
+            override fun areContentsTheSame(
+                oldItem: TextListViewModel.TextRow,
+                newItem: TextListViewModel.TextRow
+            ): Boolean = oldItem.text.title == newItem.text.title &&
+                oldItem.isFavorite == newItem.isFavorite &&
+                oldItem.searchTerm == newItem.searchTerm
+
+            override fun getChangePayload(
+                oldItem: TextListViewModel.TextRow,
+                newItem: TextListViewModel.TextRow
+            ): Any? = if (oldItem.text.title == newItem.text.title && oldItem.searchTerm == newItem.searchTerm) {
+                PAYLOAD_FAVORITE
+            } else {
+                null
+            }
+        }
+    }
 
-    fun submitList(newTexts: List<TextEntity>) {
-        texts = newTexts
-        notifyDataSetChanged()
+    init {
+        setHasStableIds(true)
     }
 
+    override fun getItemId(position: Int): Long = getItem(position).text.rid
+
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): ViewHolder {
         val view = LayoutInflater.from(parent.context)
             .inflate(R.layout.item_text, parent, false)
@@ -966,20 +714,66 @@ class TextsAdapter(
     }
 
     override fun onBindViewHolder(holder: ViewHolder, position: Int) {
-        holder.bind(texts[position])
+        holder.bind(getItem(position))
     }
 
-    override fun getItemCount() = texts.size
+    override fun onBindViewHolder(holder: ViewHolder, position: Int, payloads: MutableList<Any>) {
+        if (payloads.isNotEmpty() && payloads.all { it == PAYLOAD_FAVORITE }) {
+            // Only the favorite state changed - just update the star
+            holder.bindFavorite(getItem(position))
+        } else {
+            onBindViewHolder(holder, position)
+        }
+    }
 
     inner class ViewHolder(view: View) : RecyclerView.ViewHolder(view) {
         private val titleView: TextView = view.findViewById(R.id.titleText)
         private val favoriteIcon: TextView = view.findViewById(R.id.favoriteIcon)
+        private val snippetView: TextView = view.findViewById(R.id.snippetText)
 
-        fun bind(text: TextEntity) {
-            titleView.text = text.title
+        init {
+            // Listeners read the current row, so rows that weren't rebound never act on stale data
+            itemView.setOnClickListener {
+                currentRow()?.let { onItemClick(it.text) }
+            }
+            itemView.setOnLongClickListener {
+                val row = currentRow()?.takeIf { it.text.rid >= 0 } ?: return@setOnLongClickListener false
+                onItemLongClick(row.text)
+                true
+            }
+            favoriteIcon.setOnClickListener {
+                currentRow()?.let { row -> if (row.text.rid >= 0) onFavoriteClick(row.text) }
+            }
+        }
+
+        private fun currentRow(): TextListViewModel.TextRow? {
+            val position = bindingAdapterPosition
+            return if (position != RecyclerView.NO_POSITION) getItem(position) else null
+        }
+
+        fun bind(row: TextListViewModel.TextRow) {
+            titleView.text = row.text.title
+            bindSnippet(row)
+            bindFavorite(row)
+        }
+
+        private fun bindSnippet(row: TextListViewModel.TextRow) {
+            val snippet = snippetOf(row)
+            if (snippet == null) {
+                snippetView.visibility = View.GONE
+                snippetView.text = null
+                return
+            }
 
+            snippetView.text = SpannableString(snippet.text).apply {
+                setSpan(StyleSpan(Typeface.BOLD), snippet.matchStart, snippet.matchEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE)
+            }
+            snippetView.visibility = View.VISIBLE
+        }
+
+        fun bindFavorite(row: TextListViewModel.TextRow) {
             // Don't show favorite icon for synthetic advertisement entries (negative RID)
-            if (text.rid < 0) {
+            if (row.text.rid < 0) {
                 favoriteIcon.visibility = View.GONE
                 favoriteIcon.isClickable = false
             } else {
@@ -987,21 +781,12 @@ class TextsAdapter(
                 favoriteIcon.isClickable = true
 
                 // Set favorite icon (dot or star)
-                val isFavorite = favoritesManager.isFavorite(text.rid)
-                favoriteIcon.text = if (isFavorite) "★" else "●"
+                favoriteIcon.text = if (row.isFavorite) "★" else "●"
                 favoriteIcon.setTextColor(
-                    if (isFavorite) 0xFF000000.toInt() // Black star
+                    if (row.isFavorite) 0xFF000000.toInt() // Black star
                     else 0xFF999999.toInt() // Gray dot
                 )
-
-                // Click on star -> toggle favorite
-                favoriteIcon.setOnClickListener {
-                    onFavoriteClick(text)
-                }
             }
-
-            // Click on item -> open text
-            itemView.setOnClickListener { onItemClick(text) }
         }
     }
 }
@@ -13,7 +13,7 @@ import android.widget.ListView
 import android.widget.PopupWindow
 import android.widget.TextView
 import android.widget.LinearLayout
-import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.search.TextFacets
 import com.convocatis.app.utils.TextTypesParser
 
 /**
@@ -25,7 +25,7 @@ class CategoryDropdownMenu(
     private val context: Context,
     private val anchorView: View,
     private val onFilterSelected: (TextTypesParser.CategoryFilter) -> Unit,
-    private val availableTexts: List<TextEntity> = emptyList() // For filtering empty categories
+    private val facets: TextFacets? = null // For filtering empty categories
 ) {
 
     private var popupWindow: PopupWindow? = null
@@ -68,16 +68,11 @@ class CategoryDropdownMenu(
         // 2. Texts directly in that type (no code)
         typeDescriptions.keys.sorted().forEach { typeNum ->
             // Check if type has any texts
-            val hasTextsInType = availableTexts.any { it.categoryType == typeNum }
+            val hasTextsInType = countTexts(typeNum) > 0
 
             // Check if type has any subcategories with texts
             val subcodes = hierarchy[typeNum] ?: emptyList()
-            val hasNonEmptySubcategories = subcodes.any { (code, _) ->
-                availableTexts.any { text ->
-                    text.categoryType == typeNum &&
-                    (text.categoryCode == code || text.categoryCode?.split(",")?.map { it.trim() }?.contains(code) == true)
-                }
-            }
+            val hasNonEmptySubcategories = subcodes.any { (code, _) -> countTexts(typeNum, code) > 0 }
 
             // Only add type if it has texts or non-empty subcategories
             if (hasTextsInType || hasNonEmptySubcategories) {
@@ -97,12 +92,7 @@ class CategoryDropdownMenu(
         val allCodes = hierarchy[typeNum] ?: emptyList()
 
         // Filter out subcategories that have no texts
-        val codesWithTexts = allCodes.filter { (code, _) ->
-            availableTexts.any { text ->
-                text.categoryType == typeNum &&
-                (text.categoryCode == code || text.categoryCode?.split(",")?.map { it.trim() }?.contains(code) == true)
-            }
-        }
+        val codesWithTexts = allCodes.filter { (code, _) -> countTexts(typeNum, code) > 0 }
 
         if (codesWithTexts.isEmpty()) {
             dismiss()
@@ -117,6 +107,13 @@ class CategoryDropdownMenu(
         showPopup(contentView)
     }
 
+    /**
+     * Number of texts in category (facet popcount), 0 before texts are loaded
+     */
+    private fun countTexts(typeNum: Int, code: String? = null): Int {
+        return facets?.categoryCount(typeNum, code) ?: 0
+    }
+
     /**
      * Create a custom icon button using TextView with Unicode symbols
      */
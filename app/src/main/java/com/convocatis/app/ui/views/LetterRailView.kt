@@ -0,0 +1,102 @@
+package com.convocatis.app.ui.views
+
+import android.content.Context
+import android.graphics.Canvas
+import android.graphics.Paint
+import android.graphics.Typeface
+import android.util.AttributeSet
+import android.util.TypedValue
+import android.view.MotionEvent
+import android.view.View
+import androidx.core.content.ContextCompat
+import com.convocatis.app.R
+
+/**
+ * Fast scroller for the text list - a vertical rail with the list's section letters
+ *
+ * Touching or dragging along the rail selects the section under the finger; the owner
+ * jumps to its first row (SectionIndexer.getPositionForSection), so the rail covers the
+ * whole result list, not only the rows of the current page. The section of the rows
+ * on screen is highlighted ([setCurrentSection]).
+ */
+class LetterRailView @JvmOverloads constructor(
+    context: Context,
+    attrs: AttributeSet? = null
+) : View(context, attrs) {
+
+    private var sections: Array<Any> = emptyArray()
+    private var currentSection = -1
+    private var touchedSection = -1
+
+    // Section under the finger changed - jump there
+    var onSectionSelected: ((Int) -> Unit)? = null
+
+    // Finger down (true) / up (false) - e.g. show and hide a letter bubble
+    var onDragStateChanged: ((Boolean) -> Unit)? = null
+
+    private val paint = Paint(Paint.ANTI_ALIAS_FLAG).apply {
+        textAlign = Paint.Align.CENTER
+        textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 11f, resources.displayMetrics)
+    }
+    private val normalColor = ContextCompat.getColor(context, R.color.purple_500)
+    private val selectedColor = ContextCompat.getColor(context, R.color.purple_700)
+
+    /**
+     * Sections in row order (SectionIndexer.getSections)
+     */
+    fun setSections(sections: Array<Any>) {
+        if (sections.contentEquals(this.sections)) return
+        this.sections = sections
+        currentSection = -1
+        invalidate()
+    }
+
+    fun setCurrentSection(section: Int) {
+        if (section == currentSection) return
+        currentSection = section
+        invalidate()
+    }
+
+    override fun onDraw(canvas: Canvas) {
+        super.onDraw(canvas)
+        if (sections.isEmpty()) return
+
+        val slot = (height - paddingTop - paddingBottom).toFloat() / sections.size
+        val x = width / 2f
+        val baseline = (slot - paint.ascent() - paint.descent()) / 2f
+        sections.forEachIndexed { index, section ->
+            val selected = index == currentSection
+            paint.color = if (selected) selectedColor else normalColor
+            paint.typeface = if (selected) Typeface.DEFAULT_BOLD else Typeface.DEFAULT
+            canvas.drawText(section.toString(), x, paddingTop + index * slot + baseline, paint)
+        }
+    }
+
+    override fun onTouchEvent(event: MotionEvent): Boolean {
+        if (sections.isEmpty()) return false
+
+        when (event.actionMasked) {
+            MotionEvent.ACTION_DOWN -> {
+                parent?.requestDisallowInterceptTouchEvent(true)
+                onDragStateChanged?.invoke(true)
+                selectAt(event.y)
+            }
+            MotionEvent.ACTION_MOVE -> selectAt(event.y)
+            MotionEvent.ACTION_UP, MotionEvent.ACTION_CANCEL -> {
+                touchedSection = -1
+                onDragStateChanged?.invoke(false)
+            }
+        }
+        return true
+    }
+
+    private fun selectAt(y: Float) {
+        val height = height - paddingTop - paddingBottom
+        if (height <= 0) return
+        val section = ((y - paddingTop) / height * sections.size).toInt().coerceIn(0, sections.size - 1)
+        if (section == touchedSection) return
+        touchedSection = section
+        setCurrentSection(section)
+        onSectionSelected?.invoke(section)
+    }
+}
@@ -0,0 +1,91 @@
+package com.convocatis.app.utils
+
+import com.convocatis.app.database.entity.TextEntity
+
+/**
+ * Synthetic info/advertisement entries shown at the top of the text list
+ * Negative RIDs so they never collide with imported texts
+ */
+object AdvertisementTexts {
+
+    const val RID_LV = -1L
+    const val RID_EN = -2L
+
+    /**
+     * Create synthetic advertisement entry
+     */
+    fun createEntry(languageCode: String): TextEntity {
+        return if (languageCode == "lv") {
+            TextEntity(
+                rid = RID_LV, // Negative RID to avoid conflicts
+                title = "⭐ Informācija un atgriezeniskā saite",
+                rawContent = """
+                    >>Sveicināti Convocatis!<<
+                    Ja vēlies šādu programmu savam pasākumam, vai tev ir kādi ieteikumi vai problēmas ar šo programmu, raksti e-pastu:
+                    <a href="mailto:aivarszar@gmail.com"><b>aivarszar@gmail.com</b></a>
+                    <h3>Par šo programmu</h3>
+                    Convocatis ir radīta, lai palīdzētu organizēt un lasīt lūgšanu un dziesmu tekstus pasākumos.
+                    <ul>
+                      <li>✅ Vienkārša navigācija</li>
+                      <li>✅ Tekstu meklēšana un šķirošana</li>
+                      <li>✅ Izlūkotāko tekstu saglabāšana</li>
+                      <li>✅ Daudzu lapu un atkārtošanas atbalsts</li>
+                    </ul>
+                    <h3>Kā var palīdzēt?</h3>
+                    <ul>
+                      <li>💬 Nosūti savus ieteikumus</li>
+                      <li>🐛 Ziņo par problēmām</li>
+                      <li>⭐ Novērtē aplikāciju</li>
+                      <li>📤 Dalies ar draugiem</li>
+                    </ul>
+                    <br/>
+                    Izstrādātājs: <a href="http://convocatis.net"><b>Convocatis</b></a><br/>
+                    <a href="https://www.madonasdraudze.lv/Avize_2020/1.pdf"><b>Kalnā par Convocatis</b></a>
+
+                    <br/><br/>
+                    <img src="https://png.pngtree.com/png-vector/20211103/ourmid/pngtree-christian-religious-symbol-cross-brush-illustration-png-image_4020809.png" />
+
+                    <p><small>Versija 2.0 </small></p>
+                """.trimIndent(),
+                categoryType = 0,
+                categoryCode = null,
+                languageCode = "lv"
+            )
+        } else {
+            TextEntity(
+                rid = RID_EN, // Different negative RID
+                title = "⭐ Information and Feedback",
+                rawContent = """
+                    >>Welcome to Convocatis!<<
+                    If you want such a program for your event, or you have any suggestions or problems with this program, write an email to:
+                    <a href="mailto:aivarszar@gmail.com"><b>aivarszar@gmail.com</b></a>
+                    ---
+                    <h3>About this app</h3>
+                    Convocatis is designed to help organize and read prayer and song texts at events.
+                    <ul>
+                      <li>✅ Simple navigation</li>
+                      <li>✅ Text search and sorting</li>
+                      <li>✅ Save favorite texts</li>
+                      <li>✅ Multi-page and repetition support</li>
+                    </ul>
+                    <h3>How can you help?</h3>
+                    <ul>
+                      <li>💬 Send your suggestions</li>
+                      <li>🐛 Report problems</li>
+                      <li>⭐ Rate the app</li>
+                      <li>📤 Share with friends</li>
+                    </ul>
+                    <p><small>Version 2.0</small></p>
+                """.trimIndent(),
+                categoryType = 0,
+                categoryCode = null,
+                languageCode = "en"
+            )
+        }
+    }
+
+    /**
+     * Both entries in list order (lv, en), created once
+     */
+    val entries: List<TextEntity> by lazy { listOf(createEntry("lv"), createEntry("en")) }
+}
@@ -2,7 +2,11 @@ package com.convocatis.app.utils
 
 import android.content.Context
 import android.util.Log
+import com.convocatis.app.ConvocatisApplication
 import com.convocatis.app.database.AppDatabase
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.search.TrigramIndex
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 
@@ -18,6 +22,16 @@ class DataImporter(private val context: Context) {
     companion object {
         private const val TAG = "DataImporter"
         private const val KEY_DATA_IMPORTED = "data_imported_v11.10"  // v10 labojumi xml 7-40
+        private const val KEY_DATASET_VERSION = "dataset_version"
+
+        /**
+         * Counter bumped whenever the imported texts change - results derived from the
+         * texts (e.g. SearchResultCache) are only valid for the version they were made for
+         */
+        fun datasetVersion(context: Context): Int {
+            return context.getSharedPreferences("convocatis_prefs", Context.MODE_PRIVATE)
+                .getInt(KEY_DATASET_VERSION, 0)
+        }
     }
 
     /**
@@ -35,6 +49,9 @@ class DataImporter(private val context: Context) {
         try {
             Log.d(TAG, "Starting data import...")
 
+            // Texts change from here on - also invalidates results computed mid-import
+            bumpDatasetVersion()
+
             // Clear existing data
             textDao.deleteAllTexts()
             Log.d(TAG, "Cleared existing texts")
@@ -52,6 +69,10 @@ class DataImporter(private val context: Context) {
             Log.d(TAG, "Imported ${englishTexts.size} English texts")
 
             // Mark as imported
+            bumpDatasetVersion()
+            updateTrigramIndex(latvianTexts + englishTexts)
+            (context.applicationContext as? ConvocatisApplication)?.textRepository?.invalidate()
+            withContext(Dispatchers.Main) { TextPreloader.clear() }
             prefs.edit().putBoolean(KEY_DATA_IMPORTED, true).apply()
             Log.d(TAG, "Data import complete!")
 
@@ -61,6 +82,26 @@ class DataImporter(private val context: Context) {
         }
     }
 
+    /**
+     * Write the search trigram index for the imported texts, tagged with the new dataset
+     * version - searches then use it as it is. A failure doesn't fail the import, the
+     * text list indexes the texts itself on the first search instead.
+     */
+    private suspend fun updateTrigramIndex(texts: List<TextEntity>) {
+        try {
+            TrigramIndex.updateFile(TrigramIndex.file(context), texts, datasetVersion(context))
+            Log.d(TAG, "Updated trigram index")
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.e(TAG, "Error updating trigram index", e)
+        }
+    }
+
+    private fun bumpDatasetVersion() {
+        prefs.edit().putInt(KEY_DATASET_VERSION, prefs.getInt(KEY_DATASET_VERSION, 0) + 1).apply()
+    }
+
     /**
      * Force re-import (clears flag)
      * Useful for debugging and testing
@@ -4,6 +4,8 @@ import android.content.Context
 import android.graphics.Canvas
 import android.graphics.drawable.BitmapDrawable
 import android.graphics.drawable.Drawable
+import android.os.Handler
+import android.os.Looper
 import android.text.Html
 import android.widget.TextView
 import com.bumptech.glide.Glide
@@ -14,19 +16,35 @@ import java.lang.ref.WeakReference
 /**
  * Custom ImageGetter that uses Glide to load images from URLs
  * Automatically resizes images to fit within max dimensions
+ *
+ * May be used from a background thread (e.g. when pages are rendered ahead of time):
+ * Glide requests are always started on the main thread. When no TextView is known yet,
+ * [onImageLoaded] is called instead so the owner can refresh whichever view shows the text.
  */
 class GlideImageGetter(
     private val context: Context,
-    textView: TextView,
+    textView: TextView?,
     private val maxWidth: Int = 800,
-    private val maxHeight: Int = 600
+    private val maxHeight: Int = 600,
+    private val onImageLoaded: (() -> Unit)? = null
 ) : Html.ImageGetter {
 
     private val textViewRef = WeakReference(textView)
+    private val mainHandler = Handler(Looper.getMainLooper())
 
     override fun getDrawable(source: String): Drawable {
         val urlDrawable = UrlDrawable()
 
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            loadInto(source, urlDrawable)
+        } else {
+            mainHandler.post { loadInto(source, urlDrawable) }
+        }
+
+        return urlDrawable
+    }
+
+    private fun loadInto(source: String, urlDrawable: UrlDrawable) {
         // Load image with Glide asynchronously
         Glide.with(context)
             .load(source)
@@ -45,10 +63,7 @@ class GlideImageGetter(
                     urlDrawable.drawable = resource
 
                     // Refresh TextView to show the loaded image
-                    textViewRef.get()?.let { textView ->
-                        textView.text = textView.text
-                        textView.invalidate()
-                    }
+                    refresh()
                 }
 
                 override fun onLoadCleared(placeholder: Drawable?) {
@@ -63,15 +78,20 @@ class GlideImageGetter(
                         urlDrawable.setBounds(0, 0, 50, 50)
                         urlDrawable.drawable = error
 
-                        textViewRef.get()?.let { textView ->
-                            textView.text = textView.text
-                            textView.invalidate()
-                        }
+                        refresh()
                     }
                 }
             })
+    }
 
-        return urlDrawable
+    private fun refresh() {
+        val textView = textViewRef.get()
+        if (textView != null) {
+            textView.text = textView.text
+            textView.invalidate()
+        } else {
+            onImageLoaded?.invoke()
+        }
     }
 
     /**
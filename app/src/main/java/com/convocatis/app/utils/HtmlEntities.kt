@@ -0,0 +1,101 @@
+package com.convocatis.app.utils
+
+/**
+ * Character entity references of HTML 4 (all 252 names, plus &apos;) for [MarkupRenderer]
+ *
+ * Same names and code points as TagSoup (used by HtmlCompat) for these. TagSoup also
+ * knows a few hundred names from outside HTML 4 (MathML/ISO sets, e.g. "&Aacgr;") -
+ * those are not decoded here and stay literal text.
+ */
+internal object HtmlEntities {
+
+    /**
+     * Longest name in the table ("thetasym"), longer names are never looked up
+     */
+    const val MAX_NAME_LENGTH = 8
+
+    // ISO 8859-1 names for U+00A0..U+00FF, in code point order
+    private val LATIN_1 = arrayOf(
+        "nbsp", "iexcl", "cent", "pound", "curren", "yen", "brvbar", "sect",
+        "uml", "copy", "ordf", "laquo", "not", "shy", "reg", "macr",
+        "deg", "plusmn", "sup2", "sup3", "acute", "micro", "para", "middot",
+        "cedil", "sup1", "ordm", "raquo", "frac14", "frac12", "frac34", "iquest",
+        "Agrave", "Aacute", "Acirc", "Atilde", "Auml", "Aring", "AElig", "Ccedil",
+        "Egrave", "Eacute", "Ecirc", "Euml", "Igrave", "Iacute", "Icirc", "Iuml",
+        "ETH", "Ntilde", "Ograve", "Oacute", "Ocirc", "Otilde", "Ouml", "times",
+        "Oslash", "Ugrave", "Uacute", "Ucirc", "Uuml", "Yacute", "THORN", "szlig",
+        "agrave", "aacute", "acirc", "atilde", "auml", "aring", "aelig", "ccedil",
+        "egrave", "eacute", "ecirc", "euml", "igrave", "iacute", "icirc", "iuml",
+        "eth", "ntilde", "ograve", "oacute", "ocirc", "otilde", "ouml", "divide",
+        "oslash", "ugrave", "uacute", "ucirc", "uuml", "yacute", "thorn", "yuml"
+    )
+
+    // Special characters, symbols and Greek letters
+    private val OTHERS = arrayOf(
+        "quot" to 34, "amp" to 38, "apos" to 39, "lt" to 60, "gt" to 62,
+        "OElig" to 338, "oelig" to 339, "Scaron" to 352, "scaron" to 353, "Yuml" to 376,
+        "fnof" to 402, "circ" to 710, "tilde" to 732,
+        "Alpha" to 913, "Beta" to 914, "Gamma" to 915, "Delta" to 916, "Epsilon" to 917,
+        "Zeta" to 918, "Eta" to 919, "Theta" to 920, "Iota" to 921, "Kappa" to 922,
+        "Lambda" to 923, "Mu" to 924, "Nu" to 925, "Xi" to 926, "Omicron" to 927,
+        "Pi" to 928, "Rho" to 929, "Sigma" to 931, "Tau" to 932, "Upsilon" to 933,
+        "Phi" to 934, "Chi" to 935, "Psi" to 936, "Omega" to 937,
+        "alpha" to 945, "beta" to 946, "gamma" to 947, "delta" to 948, "epsilon" to 949,
+        "zeta" to 950, "eta" to 951, "theta" to 952, "iota" to 953, "kappa" to 954,
+        "lambda" to 955, "mu" to 956, "nu" to 957, "xi" to 958, "omicron" to 959,
+        "pi" to 960, "rho" to 961, "sigmaf" to 962, "sigma" to 963, "tau" to 964,
+        "upsilon" to 965, "phi" to 966, "chi" to 967, "psi" to 968, "omega" to 969,
+        "thetasym" to 977, "upsih" to 978, "piv" to 982,
+        "ensp" to 8194, "emsp" to 8195, "thinsp" to 8201, "zwnj" to 8204, "zwj" to 8205,
+        "lrm" to 8206, "rlm" to 8207, "ndash" to 8211, "mdash" to 8212, "lsquo" to 8216,
+        "rsquo" to 8217, "sbquo" to 8218, "ldquo" to 8220, "rdquo" to 8221, "bdquo" to 8222,
+        "dagger" to 8224, "Dagger" to 8225, "bull" to 8226, "hellip" to 8230, "permil" to 8240,
+        "prime" to 8242, "Prime" to 8243, "lsaquo" to 8249, "rsaquo" to 8250, "oline" to 8254,
+        "frasl" to 8260, "euro" to 8364,
+        "image" to 8465, "weierp" to 8472, "real" to 8476, "trade" to 8482, "alefsym" to 8501,
+        "larr" to 8592, "uarr" to 8593, "rarr" to 8594, "darr" to 8595, "harr" to 8596,
+        "crarr" to 8629, "lArr" to 8656, "uArr" to 8657, "rArr" to 8658, "dArr" to 8659,
+        "hArr" to 8660,
+        "forall" to 8704, "part" to 8706, "exist" to 8707, "empty" to 8709, "nabla" to 8711,
+        "isin" to 8712, "notin" to 8713, "ni" to 8715, "prod" to 8719, "sum" to 8721,
+        "minus" to 8722, "lowast" to 8727, "radic" to 8730, "prop" to 8733, "infin" to 8734,
+        "ang" to 8736, "and" to 8743, "or" to 8744, "cap" to 8745, "cup" to 8746,
+        "int" to 8747, "there4" to 8756, "sim" to 8764, "cong" to 8773, "asymp" to 8776,
+        "ne" to 8800, "equiv" to 8801, "le" to 8804, "ge" to 8805, "sub" to 8834,
+        "sup" to 8835, "nsub" to 8836, "sube" to 8838, "supe" to 8839, "oplus" to 8853,
+        "otimes" to 8855, "perp" to 8869, "sdot" to 8901,
+        "lceil" to 8968, "rceil" to 8969, "lfloor" to 8970, "rfloor" to 8971,
+        "lang" to 9001, "rang" to 9002, "loz" to 9674,
+        "spades" to 9824, "clubs" to 9827, "hearts" to 9829, "diams" to 9830
+    )
+
+    // Numeric references to U+0080..U+009F mean Windows-1252 characters (same as TagSoup)
+    private val WINDOWS_1252 = intArrayOf(
+        0x20AC, 0xFFFD, 0x201A, 0x0192, 0x201E, 0x2026, 0x2020, 0x2021,
+        0x02C6, 0x2030, 0x0160, 0x2039, 0x0152, 0xFFFD, 0x017D, 0xFFFD,
+        0xFFFD, 0x2018, 0x2019, 0x201C, 0x201D, 0x2022, 0x2013, 0x2014,
+        0x02DC, 0x2122, 0x0161, 0x203A, 0x0153, 0xFFFD, 0x017E, 0x0178
+    )
+
+    private val CODE_POINTS = HashMap<String, Int>(LATIN_1.size + OTHERS.size).apply {
+        LATIN_1.forEachIndexed { index, name -> put(name, 0xA0 + index) }
+        OTHERS.forEach { (name, codePoint) -> put(name, codePoint) }
+    }
+
+    /**
+     * Code point of a named entity (case-sensitive), or -1 if unknown
+     */
+    fun codePoint(name: String): Int = CODE_POINTS[name] ?: -1
+
+    /**
+     * Code point of a numeric reference (&#N; / &#xN;), -1 if it isn't one (kept as
+     * text) or 0 if it is dropped - TagSoup consumes control characters and surrogates
+     */
+    fun numericCodePoint(value: Long): Int = when {
+        value <= 0L || value > Character.MAX_CODE_POINT -> -1
+        value < 0x20L -> 0
+        value in 0x80L..0x9FL -> WINDOWS_1252[(value - 0x80).toInt()]
+        value in Character.MIN_SURROGATE.code.toLong()..Character.MAX_SURROGATE.code.toLong() -> 0
+        else -> value.toInt()
+    }
+}
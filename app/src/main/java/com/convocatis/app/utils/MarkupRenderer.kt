@@ -0,0 +1,671 @@
+package com.convocatis.app.utils
+
+import android.content.Intent
+import android.graphics.Typeface
+import android.net.Uri
+import android.text.Html
+import android.text.Layout
+import android.text.Spannable
+import android.text.SpannableString
+import android.text.Spanned
+import android.text.style.AlignmentSpan
+import android.text.style.BackgroundColorSpan
+import android.text.style.BulletSpan
+import android.text.style.ForegroundColorSpan
+import android.text.style.ImageSpan
+import android.text.style.ParagraphStyle
+import android.text.style.RelativeSizeSpan
+import android.text.style.StrikethroughSpan
+import android.text.style.StyleSpan
+import android.text.style.SubscriptSpan
+import android.text.style.SuperscriptSpan
+import android.text.style.TypefaceSpan
+import android.text.style.URLSpan
+import android.text.style.UnderlineSpan
+import android.util.Log
+import android.view.View
+
+/**
+ * Single-pass renderer for the markup subset documented in FORMATEJUMS.md
+ *
+ * Produces the same text and spans as HtmlCompat.fromHtml(FROM_HTML_MODE_LEGACY) for:
+ * b/strong, i/em, u, small, big, sup, sub, h1-h6, p, br, div, span (style), ul/ol/li,
+ * font (color, face), a (href), img (src) and HTML entities (named ones of HTML 4, see
+ * [HtmlEntities], and numeric; ';' optional).
+ * Unknown tags are skipped, their text is kept (same as HtmlCompat).
+ *
+ * Differences to the HtmlCompat pipeline used before:
+ * - No SAX/TagSoup parse, spans are emitted directly from one scan of the source
+ * - "\n" is rendered as a line break directly (no content.replace("\n", "<br>") copy)
+ * - "\r\n" is one line break; HtmlCompat kept the CR as a space before the line break
+ * - Links are [LinkSpan]s created in place (no URLSpan -> ClickableSpan rewrite afterwards)
+ *
+ * Thread-safe: every call uses its own state, so pages can be rendered on any thread.
+ */
+object MarkupRenderer {
+
+    private const val TAG = "MarkupRenderer"
+
+    // FROM_HTML_MODE_LEGACY: every block element is separated by a blank line
+    private const val BLOCK_MARGIN = 2
+
+    private val HEADING_SIZES = floatArrayOf(1.5f, 1.4f, 1.3f, 1.2f, 1.1f, 1f)
+
+    private val FOREGROUND_COLOR_PATTERN = Regex("""(?:\s+|\A)color\s*:\s*(\S*)\b""")
+    private val BACKGROUND_COLOR_PATTERN = Regex("""(?:\s+|\A)background(?:-color)?\s*:\s*(\S*)\b""")
+    private val TEXT_DECORATION_PATTERN = Regex("""(?:\s+|\A)text-decoration\s*:\s*(\S*)\b""")
+    private val TEXT_ALIGN_PATTERN = Regex("""(?:\s+|\A)text-align\s*:\s*(\S*)\b""")
+
+    // Same names as android.graphics.Color.getHtmlColor()
+    private val COLOR_NAMES = mapOf(
+        "black" to 0xFF000000.toInt(),
+        "darkgray" to 0xFF444444.toInt(),
+        "darkgrey" to 0xFF444444.toInt(),
+        "gray" to 0xFF888888.toInt(),
+        "grey" to 0xFF888888.toInt(),
+        "lightgray" to 0xFFCCCCCC.toInt(),
+        "lightgrey" to 0xFFCCCCCC.toInt(),
+        "white" to 0xFFFFFFFF.toInt(),
+        "red" to 0xFFFF0000.toInt(),
+        "green" to 0xFF00FF00.toInt(),
+        "blue" to 0xFF0000FF.toInt(),
+        "yellow" to 0xFFFFFF00.toInt(),
+        "cyan" to 0xFF00FFFF.toInt(),
+        "magenta" to 0xFFFF00FF.toInt(),
+        "aqua" to 0xFF00FFFF.toInt(),
+        "fuchsia" to 0xFFFF00FF.toInt(),
+        "lime" to 0xFF00FF00.toInt(),
+        "maroon" to 0xFF800000.toInt(),
+        "navy" to 0xFF000080.toInt(),
+        "olive" to 0xFF808000.toInt(),
+        "purple" to 0xFF800080.toInt(),
+        "silver" to 0xFFC0C0C0.toInt(),
+        "teal" to 0xFF008080.toInt()
+    )
+
+    /**
+     * Render page markup into a Spannable
+     * @param source page content (markup + plain newlines)
+     * @param imageGetter loads <img> drawables; images are skipped when null
+     */
+    fun render(source: String, imageGetter: Html.ImageGetter?): Spannable =
+        Renderer(source, imageGetter).run()
+
+    /**
+     * Link span that opens its URL in the default browser/app and never crashes
+     * when no app can handle it
+     */
+    class LinkSpan(url: String) : URLSpan(url) {
+        override fun onClick(widget: View) {
+            try {
+                // Open URL in default browser/app
+                widget.context.startActivity(Intent(Intent.ACTION_VIEW, Uri.parse(url)))
+            } catch (e: Exception) {
+                Log.e(TAG, "Error opening URL: $url", e)
+            }
+        }
+    }
+
+    // Mark kinds - mirrors the private marker classes of android.text.Html
+    private const val BOLD = 0
+    private const val ITALIC = 1
+    private const val UNDERLINE = 2
+    private const val BIG = 3
+    private const val SMALL = 4
+    private const val SUPER = 5
+    private const val SUB = 6
+    private const val FONT = 7
+    private const val FOREGROUND = 8
+    private const val BACKGROUND = 9
+    private const val STRIKE = 10
+    private const val HREF = 11
+    private const val HEADING = 12
+    private const val BULLET = 13
+    private const val NEWLINE = 14
+    private const val ALIGNMENT = 15
+    private const val KIND_COUNT = 16
+
+    private class Mark(val start: Int, val value: Any?)
+
+    private class SpanRecord(val what: Any, val start: Int, var end: Int)
+
+    private class Renderer(
+        private val src: String,
+        private val imageGetter: Html.ImageGetter?
+    ) {
+        private val out = StringBuilder(src.length)
+        private val spans = ArrayList<SpanRecord>()
+        private val marks = arrayOfNulls<ArrayList<Mark>>(KIND_COUNT)
+        private val open = ArrayList<String>()  // Open elements, innermost last
+
+        fun run(): Spannable {
+            var i = 0
+            val n = src.length
+            while (i < n) {
+                val c = src[i]
+                i = when (c) {
+                    '<' -> parseMarkup(i)
+                    '&' -> parseEntity(i)
+                    '\n' -> {
+                        // Same as "<br>" in the HtmlCompat pipeline
+                        out.append('\n')
+                        i + 1
+                    }
+                    '\r' -> {
+                        // CRLF is one line break (the '\n' follows), a lone CR is whitespace
+                        if (i + 1 >= n || src[i + 1] != '\n') appendChar(c)
+                        i + 1
+                    }
+                    else -> {
+                        appendChar(c)
+                        i + 1
+                    }
+                }
+            }
+
+            // Close everything left open at the end of the page
+            while (open.isNotEmpty()) {
+                handleEndTag(open.removeAt(open.size - 1))
+            }
+
+            return build()
+        }
+
+        // --- Text ---
+
+        /**
+         * Append text char, collapsing whitespace like Html's characters() handler
+         * (TagSoup reads a lone CR as a newline, which Html collapses like a space)
+         */
+        private fun appendChar(c: Char) {
+            if (c == ' ' || c == '\r') {
+                val pred = if (out.isEmpty()) '\n' else out[out.length - 1]
+                if (pred != ' ' && pred != '\n') out.append(' ')
+            } else {
+                out.append(c)
+            }
+        }
+
+        private fun parseEntity(start: Int): Int {
+            val end = decodeEntityAt(src, start) { appendCodePoint(it) }
+            if (end == -1) {
+                appendChar('&')
+                return start + 1
+            }
+            return end
+        }
+
+        private fun appendCodePoint(codePoint: Int) {
+            if (codePoint <= 0xFFFF) appendChar(codePoint.toChar()) else out.appendCodePoint(codePoint)
+        }
+
+        // --- Tags ---
+
+        private fun parseMarkup(start: Int): Int {
+            val n = src.length
+            if (start + 1 >= n) {
+                appendChar('<')
+                return start + 1
+            }
+
+            val next = src[start + 1]
+
+            // Comment
+            if (src.startsWith("<!--", start)) {
+                val end = src.indexOf("-->", start + 4)
+                return if (end == -1) n else end + 3
+            }
+
+            // Declaration / processing instruction
+            if (next == '!' || next == '?') {
+                val end = src.indexOf('>', start + 2)
+                return if (end == -1) n else end + 1
+            }
+
+            val isEndTag = next == '/'
+            val nameStart = if (isEndTag) start + 2 else start + 1
+            if (nameStart >= n || !src[nameStart].isLetter()) {
+                // Not a tag - literal '<'
+                appendChar('<')
+                return start + 1
+            }
+
+            var nameEnd = nameStart
+            while (nameEnd < n && isNameChar(src[nameEnd])) nameEnd++
+            val name = src.substring(nameStart, nameEnd).lowercase()
+
+            // Find closing '>' (ignoring '>' inside quoted attribute values)
+            var i = nameEnd
+            var quote = 0.toChar()
+            while (i < n) {
+                val c = src[i]
+                if (quote != 0.toChar()) {
+                    if (c == quote) quote = 0.toChar()
+                } else if (c == '"' || c == '\'') {
+                    quote = c
+                } else if (c == '>') {
+                    break
+                }
+                i++
+            }
+            val tagEnd = i  // Index of '>' (or n)
+            val selfClosing = tagEnd > nameEnd && src[tagEnd - 1] == '/'
+
+            if (isEndTag) {
+                closeElement(name)
+            } else {
+                handleStartTag(name, nameEnd, if (selfClosing) tagEnd - 1 else tagEnd, selfClosing)
+            }
+
+            return if (tagEnd < n) tagEnd + 1 else n
+        }
+
+        private fun handleStartTag(name: String, attrStart: Int, attrEnd: Int, selfClosing: Boolean) {
+            when (name) {
+                "br" -> {
+                    out.append('\n')
+                    return
+                }
+                "img" -> {
+                    startImg(attribute(attrStart, attrEnd, "src"))
+                    return
+                }
+                "p" -> {
+                    closeOpenParagraph()
+                    open.add(name)
+                    startBlockElement(attribute(attrStart, attrEnd, "style"))
+                    startCssStyle(attribute(attrStart, attrEnd, "style"))
+                }
+                "ul", "div" -> {
+                    closeOpenParagraph()
+                    open.add(name)
+                    startBlockElement(attribute(attrStart, attrEnd, "style"))
+                }
+                "ol" -> {
+                    // No formatting of its own (same as HtmlCompat), only structure for <li>
+                    closeOpenParagraph()
+                    open.add(name)
+                }
+                "li" -> {
+                    closeOpenParagraph()
+                    closeOpenListItem()
+                    open.add(name)
+                    val style = attribute(attrStart, attrEnd, "style")
+                    startBlockElement(style)
+                    start(BULLET, null)
+                    startCssStyle(style)
+                }
+                "h1", "h2", "h3", "h4", "h5", "h6" -> {
+                    closeOpenParagraph()
+                    open.add(name)
+                    startBlockElement(attribute(attrStart, attrEnd, "style"))
+                    start(HEADING, name[1] - '1')
+                }
+                "span" -> {
+                    open.add(name)
+                    startCssStyle(attribute(attrStart, attrEnd, "style"))
+                }
+                "b", "strong" -> {
+                    open.add(name)
+                    start(BOLD, null)
+                }
+                "i", "em" -> {
+                    open.add(name)
+                    start(ITALIC, null)
+                }
+                "u" -> {
+                    open.add(name)
+                    start(UNDERLINE, null)
+                }
+                "big" -> {
+                    open.add(name)
+                    start(BIG, null)
+                }
+                "small" -> {
+                    open.add(name)
+                    start(SMALL, null)
+                }
+                "sup" -> {
+                    open.add(name)
+                    start(SUPER, null)
+                }
+                "sub" -> {
+                    open.add(name)
+                    start(SUB, null)
+                }
+                "font" -> {
+                    open.add(name)
+                    startFont(attribute(attrStart, attrEnd, "color"), attribute(attrStart, attrEnd, "face"))
+                }
+                "a" -> {
+                    open.add(name)
+                    start(HREF, attribute(attrStart, attrEnd, "href"))
+                }
+                else -> return  // Unknown tag - ignored, content is kept
+            }
+
+            if (selfClosing) closeElement(name)
+        }
+
+        private fun handleEndTag(name: String) {
+            when (name) {
+                "p" -> {
+                    endCssStyle()
+                    endBlockElement()
+                }
+                "ul", "div" -> endBlockElement()
+                "li" -> {
+                    endCssStyle()
+                    endBlockElement()
+                    end(BULLET) { BulletSpan() }
+                }
+                "h1", "h2", "h3", "h4", "h5", "h6" -> endHeading()
+                "span" -> endCssStyle()
+                "b", "strong" -> end(BOLD) { StyleSpan(Typeface.BOLD) }
+                "i", "em" -> end(ITALIC) { StyleSpan(Typeface.ITALIC) }
+                "u" -> end(UNDERLINE) { UnderlineSpan() }
+                "big" -> end(BIG) { RelativeSizeSpan(1.25f) }
+                "small" -> end(SMALL) { RelativeSizeSpan(0.8f) }
+                "sup" -> end(SUPER) { SuperscriptSpan() }
+                "sub" -> end(SUB) { SubscriptSpan() }
+                "font" -> {
+                    end(FONT) { TypefaceSpan(it as String) }
+                    end(FOREGROUND) { ForegroundColorSpan(it as Int) }
+                }
+                "a" -> end(HREF) { href -> (href as String?)?.let { LinkSpan(it) } }
+            }
+        }
+
+        /**
+         * Close element and everything opened inside it (unmatched end tags are ignored)
+         */
+        private fun closeElement(name: String) {
+            val index = open.lastIndexOf(name)
+            if (index == -1) return
+            while (open.size > index) {
+                handleEndTag(open.removeAt(open.size - 1))
+            }
+        }
+
+        /**
+         * A paragraph can't contain block elements - the block start closes it
+         */
+        private fun closeOpenParagraph() {
+            if (open.contains("p")) closeElement("p")
+        }
+
+        /**
+         * A new list item closes the previous one of the same list
+         */
+        private fun closeOpenListItem() {
+            val li = open.lastIndexOf("li")
+            if (li == -1) return
+            for (i in li + 1 until open.size) {
+                if (open[i] == "ul" || open[i] == "ol") return  // Nested list
+            }
+            closeElement("li")
+        }
+
+        // --- Block elements ---
+
+        private fun appendNewlines(minNewlines: Int) {
+            val len = out.length
+            if (len == 0) return
+
+            var existing = 0
+            var i = len - 1
+            while (i >= 0 && out[i] == '\n') {
+                existing++
+                i--
+            }
+            for (j in existing until minNewlines) out.append('\n')
+        }
+
+        private fun startBlockElement(style: String?) {
+            appendNewlines(BLOCK_MARGIN)
+            start(NEWLINE, BLOCK_MARGIN)
+
+            if (style != null) {
+                TEXT_ALIGN_PATTERN.find(style)?.let { match ->
+                    val alignment = when (match.groupValues[1].lowercase()) {
+                        "start" -> Layout.Alignment.ALIGN_NORMAL
+                        "center" -> Layout.Alignment.ALIGN_CENTER
+                        "end" -> Layout.Alignment.ALIGN_OPPOSITE
+                        else -> null
+                    }
+                    if (alignment != null) start(ALIGNMENT, alignment)
+                }
+            }
+        }
+
+        private fun endBlockElement() {
+            pop(NEWLINE)?.let { appendNewlines(it.value as Int) }
+            end(ALIGNMENT) { AlignmentSpan.Standard(it as Layout.Alignment) }
+        }
+
+        private fun endHeading() {
+            // Size and bold must not cover the newlines appended by the block end
+            pop(HEADING)?.let { mark ->
+                val level = mark.value as Int
+                addSpan(mark.start, RelativeSizeSpan(HEADING_SIZES[level]))
+                addSpan(mark.start, StyleSpan(Typeface.BOLD))
+            }
+            endBlockElement()
+        }
+
+        // --- Styles ---
+
+        private fun startCssStyle(style: String?) {
+            if (style == null) return
+
+            FOREGROUND_COLOR_PATTERN.find(style)?.let { match ->
+                val color = getHtmlColor(match.groupValues[1])
+                if (color != -1) start(FOREGROUND, color or 0xFF000000.toInt())
+            }
+            BACKGROUND_COLOR_PATTERN.find(style)?.let { match ->
+                val color = getHtmlColor(match.groupValues[1])
+                if (color != -1) start(BACKGROUND, color or 0xFF000000.toInt())
+            }
+            TEXT_DECORATION_PATTERN.find(style)?.let { match ->
+                if (match.groupValues[1].equals("line-through", ignoreCase = true)) start(STRIKE, null)
+            }
+        }
+
+        private fun endCssStyle() {
+            end(STRIKE) { StrikethroughSpan() }
+            end(BACKGROUND) { BackgroundColorSpan(it as Int) }
+            end(FOREGROUND) { ForegroundColorSpan(it as Int) }
+        }
+
+        private fun startFont(color: String?, face: String?) {
+            if (!color.isNullOrEmpty()) {
+                val c = getHtmlColor(color)
+                if (c != -1) start(FOREGROUND, c or 0xFF000000.toInt())
+            }
+            if (!face.isNullOrEmpty()) start(FONT, face)
+        }
+
+        private fun startImg(source: String?) {
+            if (source == null || imageGetter == null) return
+            val drawable = imageGetter.getDrawable(source) ?: return
+
+            val start = out.length
+            out.append('\uFFFC')  // Object replacement char, same as Html
+            spans.add(SpanRecord(ImageSpan(drawable, source), start, out.length))
+        }
+
+        // --- Marks ---
+
+        private fun start(kind: Int, value: Any?) {
+            val list = marks[kind] ?: ArrayList<Mark>(2).also { marks[kind] = it }
+            list.add(Mark(out.length, value))
+        }
+
+        private fun pop(kind: Int): Mark? {
+            val list = marks[kind] ?: return null
+            return if (list.isEmpty()) null else list.removeAt(list.size - 1)
+        }
+
+        private inline fun end(kind: Int, span: (Any?) -> Any?) {
+            val mark = pop(kind) ?: return
+            span(mark.value)?.let { addSpan(mark.start, it) }
+        }
+
+        private fun addSpan(start: Int, what: Any) {
+            // Empty ranges produce no span (same as Html.setSpanFromMark)
+            if (start != out.length) spans.add(SpanRecord(what, start, out.length))
+        }
+
+        // --- Attributes ---
+
+        /**
+         * Read a single attribute value from the tag text between [from] and [to]
+         */
+        private fun attribute(from: Int, to: Int, name: String): String? {
+            var i = from
+            while (i < to) {
+                // Skip whitespace and stray characters
+                while (i < to && !isNameChar(src[i])) i++
+                val keyStart = i
+                while (i < to && isNameChar(src[i])) i++
+                val keyEnd = i
+                if (keyStart == keyEnd) break
+
+                while (i < to && src[i].isWhitespace()) i++
+                if (i >= to || src[i] != '=') {
+                    // Attribute without value
+                    if (keyEnd - keyStart == name.length && src.regionMatches(keyStart, name, 0, name.length, true)) {
+                        return ""
+                    }
+                    continue
+                }
+                i++  // '='
+                while (i < to && src[i].isWhitespace()) i++
+
+                val valueStart: Int
+                val valueEnd: Int
+                if (i < to && (src[i] == '"' || src[i] == '\'')) {
+                    val quote = src[i]
+                    valueStart = i + 1
+                    val close = src.indexOf(quote, valueStart)
+                    valueEnd = if (close == -1 || close > to) to else close
+                    i = valueEnd + 1
+                } else {
+                    valueStart = i
+                    while (i < to && !src[i].isWhitespace()) i++
+                    valueEnd = i
+                }
+
+                if (keyEnd - keyStart == name.length && src.regionMatches(keyStart, name, 0, name.length, true)) {
+                    return decodeEntities(src.substring(valueStart, valueEnd))
+                }
+            }
+            return null
+        }
+
+        // --- Result ---
+
+        private fun build(): Spannable {
+            val text = out.toString()
+            val result = SpannableString(text)
+
+            for (record in spans) {
+                var end = record.end
+                var flags = Spanned.SPAN_EXCLUSIVE_EXCLUSIVE
+
+                if (record.what is ParagraphStyle) {
+                    // If the last line of the range is blank, back off by one (same as Html)
+                    if (end - 2 >= 0 && text[end - 1] == '\n' && text[end - 2] == '\n') end--
+                    if (end == record.start) continue
+                    flags = Spanned.SPAN_PARAGRAPH
+                }
+
+                try {
+                    result.setSpan(record.what, record.start, end, flags)
+                } catch (e: RuntimeException) {
+                    Log.w(TAG, "Skipping span ${record.what.javaClass.simpleName} at ${record.start}-$end", e)
+                }
+            }
+
+            return result
+        }
+    }
+
+    private fun isNameChar(c: Char): Boolean =
+        c.isLetterOrDigit() || c == '-' || c == '_' || c == ':' || c == '.'
+
+    /**
+     * Decode the entity reference starting at '&' ([start]) the way TagSoup does: named
+     * ([HtmlEntities]) or numeric, the closing ';' is optional. Passes its code point to
+     * [append] (unless it is dropped) and returns the index after the reference, or -1
+     * if it isn't one - the '&' is then literal text.
+     */
+    private inline fun decodeEntityAt(s: String, start: Int, append: (Int) -> Unit): Int {
+        val n = s.length
+        var i = start + 1
+        val codePoint: Int
+        if (i < n && s[i] == '#') {
+            i++
+            val hex = i < n && (s[i] == 'x' || s[i] == 'X')
+            if (hex) i++
+            val digitsStart = i
+            while (i < n && (s[i] in '0'..'9' || hex && (s[i] in 'a'..'f' || s[i] in 'A'..'F'))) i++
+            // Longer numbers can't be code points (and would overflow)
+            if (i == digitsStart || i - digitsStart > 10) return -1
+            codePoint = HtmlEntities.numericCodePoint(s.substring(digitsStart, i).toLong(if (hex) 16 else 10))
+        } else {
+            while (i < n && (s[i] in 'a'..'z' || s[i] in 'A'..'Z' || s[i] in '0'..'9')) i++
+            val length = i - start - 1
+            if (length == 0 || length > HtmlEntities.MAX_NAME_LENGTH) return -1
+            codePoint = HtmlEntities.codePoint(s.substring(start + 1, i))
+        }
+        if (codePoint == -1) return -1
+
+        if (i < n && s[i] == ';') i++
+        if (codePoint != 0) append(codePoint)
+        return i
+    }
+
+    internal fun decodeEntities(value: String): String {
+        if (value.indexOf('&') == -1) return value
+
+        val sb = StringBuilder(value.length)
+        var i = 0
+        while (i < value.length) {
+            val c = value[i]
+            if (c == '&') {
+                val end = decodeEntityAt(value, i) { sb.appendCodePoint(it) }
+                if (end != -1) {
+                    i = end
+                    continue
+                }
+            }
+            sb.append(c)
+            i++
+        }
+        return sb.toString()
+    }
+
+    /**
+     * Same rules as android.graphics.Color.getHtmlColor(): color name or number (#hex, 0x, decimal)
+     */
+    private fun getHtmlColor(color: String): Int {
+        COLOR_NAMES[color.lowercase()]?.let { return it }
+
+        var value = color
+        var sign = 1
+        if (value.startsWith("-")) {
+            sign = -1
+            value = value.substring(1)
+        }
+
+        val parsed = when {
+            value.startsWith("#") -> value.substring(1).toLongOrNull(16)
+            value.startsWith("0x") || value.startsWith("0X") -> value.substring(2).toLongOrNull(16)
+            value.startsWith("0") && value.length > 1 -> value.substring(1).toLongOrNull(8)
+            else -> value.toLongOrNull()
+        } ?: return -1
+
+        return (sign * parsed).toInt()
+    }
+}
@@ -0,0 +1,148 @@
+package com.convocatis.app.utils
+
+import android.graphics.drawable.ColorDrawable
+import android.os.SystemClock
+import android.text.Html
+import android.text.Spanned
+import android.text.style.AlignmentSpan
+import android.text.style.BackgroundColorSpan
+import android.text.style.BulletSpan
+import android.text.style.ForegroundColorSpan
+import android.text.style.ImageSpan
+import android.text.style.RelativeSizeSpan
+import android.text.style.StrikethroughSpan
+import android.text.style.StyleSpan
+import android.text.style.SubscriptSpan
+import android.text.style.SuperscriptSpan
+import android.text.style.TypefaceSpan
+import android.text.style.URLSpan
+import android.text.style.UnderlineSpan
+import android.util.Log
+import androidx.core.text.HtmlCompat
+import com.convocatis.app.database.dao.TextDao
+import com.convocatis.app.database.entity.TextEntity
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+
+/**
+ * Check of [MarkupRenderer] against the HtmlCompat.fromHtml pipeline it replaced
+ *
+ * Renders every page of the corpus with both and counts the pages where text or spans
+ * differ, plus total render time of both. Run by MarkupRendererVerifierTest on the
+ * bundled texts, and in debuggable builds after the initial import (logged only).
+ */
+object MarkupRendererVerifier {
+
+    private const val TAG = "MarkupRendererVerifier"
+
+    private val HEADER_PATTERN = Regex(">>.*?<<", RegexOption.DOT_MATCHES_ALL)
+
+    // Images are compared by source only - never hit the network here
+    private val imageGetter = Html.ImageGetter { _ ->
+        ColorDrawable(0).apply { setBounds(0, 0, 1, 1) }
+    }
+
+    /**
+     * Outcome of [verify] - differences holds one description per mismatching page
+     */
+    class Result(val pages: Int, val differences: List<String>, val markupNanos: Long, val htmlNanos: Long) {
+        val mismatches: Int get() = differences.size
+
+        override fun toString(): String =
+            "$pages pages: $mismatches mismatches, " +
+                "MarkupRenderer ${markupNanos / 1_000_000} ms, HtmlCompat ${htmlNanos / 1_000_000} ms"
+    }
+
+    suspend fun verifyCorpus(textDao: TextDao) = withContext(Dispatchers.Default) {
+        val texts = textDao.getAllTextsList()
+        val result = verify(corpusPages(texts + AdvertisementTexts.entries))
+        result.differences.forEach { Log.w(TAG, "Mismatch: $it") }
+        Log.i(TAG, "Verified ${texts.size} texts and info entries, $result")
+    }
+
+    /**
+     * Pages are either '|'-separated parts of a text (headers are shown separately)
+     * or the whole text when it is referenced from another one (%RID)
+     */
+    fun corpusPages(texts: List<TextEntity>): Collection<String> {
+        val pages = LinkedHashSet<String>()
+        for (text in texts) {
+            pages.add(text.rawContent)
+            text.rawContent.split('|').forEach { part ->
+                val page = part.replace(HEADER_PATTERN, "")
+                if (page.isNotBlank()) pages.add(page)
+            }
+        }
+        return pages
+    }
+
+    /**
+     * Render pages with both renderers and compare them, on the calling thread
+     */
+    fun verify(pages: Collection<String>): Result {
+        val differences = ArrayList<String>()
+        var markupNanos = 0L
+        var htmlNanos = 0L
+
+        for (page in pages) {
+            var t = SystemClock.elapsedRealtimeNanos()
+            val actual = MarkupRenderer.render(page, imageGetter)
+            markupNanos += SystemClock.elapsedRealtimeNanos() - t
+
+            // CRLF is one line break in MarkupRenderer - HtmlCompat would keep the CR as a space
+            t = SystemClock.elapsedRealtimeNanos()
+            val expected = HtmlCompat.fromHtml(
+                page.replace("\r\n", "\n").replace("\n", "<br>"),
+                HtmlCompat.FROM_HTML_MODE_LEGACY,
+                imageGetter,
+                null
+            )
+            htmlNanos += SystemClock.elapsedRealtimeNanos() - t
+
+            compare(expected, actual)?.let { differences.add("$it\nPage: ${page.take(200)}") }
+        }
+
+        return Result(pages.size, differences, markupNanos, htmlNanos)
+    }
+
+    /**
+     * Describe the first difference between two rendered pages, or null if identical
+     */
+    fun compare(expected: Spanned, actual: Spanned): String? {
+        if (expected.toString() != actual.toString()) {
+            val index = expected.toString().zip(actual.toString()).indexOfFirst { it.first != it.second }
+                .let { if (it == -1) minOf(expected.length, actual.length) else it }
+            return "text differs at $index (length ${expected.length} vs ${actual.length})"
+        }
+
+        val expectedSpans = describeSpans(expected)
+        val actualSpans = describeSpans(actual)
+        if (expectedSpans != actualSpans) {
+            return "spans differ: expected ${expectedSpans - actualSpans.toSet()}, " +
+                "got ${actualSpans - expectedSpans.toSet()}"
+        }
+        return null
+    }
+
+    private fun describeSpans(spanned: Spanned): List<String> {
+        return spanned.getSpans(0, spanned.length, Any::class.java).mapNotNull { span ->
+            val name = when (span) {
+                is URLSpan -> "Url:${span.url}"
+                is ImageSpan -> "Img:${span.source}"
+                is StyleSpan -> "Style:${span.style}"
+                is RelativeSizeSpan -> "Size:${span.sizeChange}"
+                is ForegroundColorSpan -> "Fg:${span.foregroundColor}"
+                is BackgroundColorSpan -> "Bg:${span.backgroundColor}"
+                is TypefaceSpan -> "Face:${span.family}"
+                is AlignmentSpan -> "Align:${span.alignment}"
+                is UnderlineSpan -> "Underline"
+                is StrikethroughSpan -> "Strike"
+                is SuperscriptSpan -> "Super"
+                is SubscriptSpan -> "Sub"
+                is BulletSpan -> "Bullet"
+                else -> null
+            } ?: return@mapNotNull null
+            "$name@${spanned.getSpanStart(span)}-${spanned.getSpanEnd(span)}"
+        }.sorted()
+    }
+}
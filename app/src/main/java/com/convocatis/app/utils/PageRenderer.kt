@@ -0,0 +1,251 @@
+package com.convocatis.app.utils
+
+import android.content.Context
+import android.text.Spanned
+import android.text.style.BackgroundColorSpan
+import android.util.Log
+import android.util.LruCache
+import androidx.core.content.ContextCompat
+import androidx.core.text.PrecomputedTextCompat
+import com.convocatis.app.R
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Renders reader pages (markup -> Spanned) off the main thread
+ *
+ * Each page is built on Dispatchers.Default and kept in a bounded LRU cache,
+ * so ViewPager2 binding only has to assign ready text. Pages next to the current
+ * position are prefetched so a swipe never waits for rendering.
+ *
+ * Once the page TextView reports its text metrics and width, rendered pages are also
+ * precomputed (PrecomputedTextCompat) in the background, so the first measure/layout
+ * of a page on the UI thread reuses the glyph measurements instead of doing them.
+ *
+ * Pages that must stay ready regardless of the LRU (e.g. every section start of a
+ * program, see PreparedText.warmUp) are [pin]ned - kept outside the cache until [clear].
+ *
+ * Occurrences of [highlight] (e.g. the search term the text was opened with) are
+ * marked while rendering, so highlighting costs nothing at bind time.
+ *
+ * All public methods must be called from the main thread.
+ */
+class PageRenderer(
+    context: Context,
+    private val scope: CoroutineScope,
+    highlight: String? = null,
+    private val contentAt: suspend (Int) -> String
+) {
+
+    companion object {
+        private const val TAG = "PageRenderer"
+        private const val CACHE_MAX_CHARS = 256 * 1024  // Sum of Spanned lengths kept in memory
+        private const val LAYOUT_CACHE_PAGES = 8
+        private const val PREFETCH_AHEAD = 2
+        private const val PREFETCH_BEHIND = 1
+    }
+
+    /**
+     * Precomputed layouts are only valid for the metrics they were measured with
+     */
+    data class PageLayoutKey(
+        val position: Int,
+        val fontScale: Float,
+        val widthPx: Int
+    )
+
+    private val appContext = context.applicationContext
+
+    // Whitespace between words of the term may be any line break or space in the page
+    private val highlightPattern: Regex? = highlight?.trim()?.takeIf { it.isNotEmpty() }?.let { term ->
+        Regex(term.split(Regex("\\s+")).joinToString("\\s+") { Regex.escape(it) }, RegexOption.IGNORE_CASE)
+    }
+    private val highlightColor = ContextCompat.getColor(appContext, R.color.search_highlight)
+
+    private val cache = object : LruCache<Int, Spanned>(CACHE_MAX_CHARS) {
+        override fun sizeOf(key: Int, value: Spanned): Int = maxOf(1, value.length)
+    }
+
+    private val layoutCache = LruCache<PageLayoutKey, PrecomputedTextCompat>(LAYOUT_CACHE_PAGES)
+
+    // Pinned positions and their rendered pages - never evicted
+    private val pinned = HashSet<Int>()
+    private val pinnedPages = HashMap<Int, Spanned>()
+
+    private val inFlight = HashMap<Int, Job>()
+
+    // Current page TextView metrics (null until the first page is laid out)
+    private var textMetrics: PrecomputedTextCompat.Params? = null
+    private var fontScale: Float = 0f
+    private var widthPx: Int = 0
+
+    private var lastPosition: Int = 0
+    private var lastPageCount: Int = 0
+
+    /**
+     * Called on the main thread when a page's Spanned is ready, or when one of its
+     * images finished loading and the page has to be re-laid out
+     */
+    var onPageReady: ((Int) -> Unit)? = null
+
+    /**
+     * Get already rendered page, or null if it is not ready yet
+     */
+    fun getCached(position: Int): Spanned? = pinnedPages[position] ?: cache.get(position)
+
+    /**
+     * Get precomputed layout for the current text metrics, or null if not ready
+     */
+    fun getLayout(position: Int): PrecomputedTextCompat? {
+        val key = layoutKey(position) ?: return null
+        return layoutCache.get(key)
+    }
+
+    /**
+     * Report text metrics and width of the page TextView
+     * Changing font scale, width or paint (configuration change, multi-window resize)
+     * invalidates all precomputed layouts
+     */
+    fun updateTextMetrics(params: PrecomputedTextCompat.Params, fontScale: Float, widthPx: Int) {
+        if (widthPx <= 0) return
+        if (params == textMetrics && fontScale == this.fontScale && widthPx == this.widthPx) return
+
+        textMetrics = params
+        this.fontScale = fontScale
+        this.widthPx = widthPx
+        layoutCache.evictAll()
+
+        // Re-warm layouts around the page the user is on
+        if (lastPageCount > 0) prefetchAround(lastPosition, lastPageCount)
+    }
+
+    /**
+     * Start rendering a page in the background (no-op if cached or already rendering)
+     */
+    fun request(position: Int) {
+        if (position < 0 || inFlight.containsKey(position)) return
+
+        val needsSpanned = getCached(position) == null
+        val needsLayout = textMetrics != null && getLayout(position) == null
+        if (!needsSpanned && !needsLayout) return
+
+        val job = scope.launch(start = CoroutineStart.LAZY) {
+            var layoutOutdated = false
+            try {
+                val spanned = getCached(position) ?: withContext(Dispatchers.Default) {
+                    render(position, contentAt(position))
+                }.also {
+                    if (position in pinned) pinnedPages[position] = it else cache.put(position, it)
+                    onPageReady?.invoke(position)
+                }
+
+                val params = textMetrics
+                val key = layoutKey(position)
+                if (params != null && key != null && layoutCache.get(key) == null) {
+                    val precomputed = withContext(Dispatchers.Default) {
+                        PrecomputedTextCompat.create(spanned, params)
+                    }
+                    // Metrics may have changed while measuring - never cache a stale layout
+                    if (key == layoutKey(position) && params == textMetrics) {
+                        layoutCache.put(key, precomputed)
+                        onPageReady?.invoke(position)
+                    } else {
+                        layoutOutdated = true
+                    }
+                }
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Error rendering page $position", e)
+            } finally {
+                if (inFlight[position] === coroutineContext[Job]) inFlight.remove(position)
+            }
+            if (layoutOutdated) request(position)
+        }
+        inFlight[position] = job
+        job.start()
+    }
+
+    /**
+     * Render a page and keep it until [clear], whatever else is rendered meanwhile
+     */
+    fun pin(position: Int) {
+        if (position < 0) return
+        if (pinned.add(position)) cache.remove(position)?.let { pinnedPages[position] = it }
+        request(position)
+    }
+
+    /**
+     * Prefetch pages around the current position (next pages first)
+     */
+    fun prefetchAround(position: Int, pageCount: Int) {
+        lastPosition = position
+        lastPageCount = pageCount
+
+        request(position)
+        for (offset in 1..PREFETCH_AHEAD) {
+            if (position + offset < pageCount) request(position + offset)
+        }
+        for (offset in 1..PREFETCH_BEHIND) {
+            if (position - offset >= 0) request(position - offset)
+        }
+    }
+
+    /**
+     * Drop all rendered (also pinned) pages and cancel pending work
+     */
+    fun clear() {
+        inFlight.values.forEach { it.cancel() }
+        inFlight.clear()
+        pinned.clear()
+        pinnedPages.clear()
+        cache.evictAll()
+        layoutCache.evictAll()
+    }
+
+    private fun layoutKey(position: Int): PageLayoutKey? {
+        if (textMetrics == null || widthPx <= 0) return null
+        return PageLayoutKey(position, fontScale, widthPx)
+    }
+
+    /**
+     * Image sizes changed after loading - the precomputed layout no longer matches
+     */
+    private fun onImageLoaded(position: Int) {
+        layoutKey(position)?.let { layoutCache.remove(it) }
+        onPageReady?.invoke(position)
+    }
+
+    /**
+     * Build Spanned for page content (runs on a background thread)
+     */
+    private fun render(position: Int, content: String): Spanned {
+        // Use Glide-based ImageGetter for loading images
+        // Images arrive later on the main thread - ask the adapter to re-bind the page then
+        val imageGetter = GlideImageGetter(
+            context = appContext,
+            textView = null,
+            maxWidth = 800,
+            maxHeight = 600,
+            onImageLoaded = { onImageLoaded(position) }
+        )
+
+        // Single pass: line breaks, styles, links and images are handled by the renderer
+        val spannable = MarkupRenderer.render(content, imageGetter)
+
+        highlightPattern?.findAll(spannable)?.forEach { match ->
+            spannable.setSpan(
+                BackgroundColorSpan(highlightColor),
+                match.range.first,
+                match.range.last + 1,
+                Spanned.SPAN_EXCLUSIVE_EXCLUSIVE
+            )
+        }
+        return spannable
+    }
+}
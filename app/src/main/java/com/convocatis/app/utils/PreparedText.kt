@@ -0,0 +1,167 @@
+package com.convocatis.app.utils
+
+import android.content.Context
+import android.util.Log
+import com.bumptech.glide.Glide
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.repository.TextRepository
+import com.convocatis.app.search.PageTextIndex
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Everything the reader needs to show a text: reading model, search match pages and
+ * a page renderer with its rendered pages
+ *
+ * Match pages are located in the background once prepared - that loads every text the
+ * text references, so the start page never waits for it.
+ *
+ * The renderer runs in the prepared text's own scope, so a text can be prepared by
+ * one owner (e.g. [TextPreloader]) and handed to another (the reader's ViewModel)
+ * without losing its rendered pages. Whoever owns it last must [close] it.
+ */
+class PreparedText private constructor(
+    val text: TextEntity,
+    val model: ReadingModel,
+    val searchTerm: String?,
+    val renderer: PageRenderer,
+    private val context: Context,
+    private val scope: CoroutineScope
+) {
+
+    companion object {
+        private const val TAG = "PreparedText"
+
+        // Markup that would end a program item header early
+        private val HEADER_BREAK = Regex("""\||>>|<<""")
+        private val IMAGE_SOURCE = Regex("""<img\b[^>]*\bsrc\s*=\s*["']([^"']+)["']""", RegexOption.IGNORE_CASE)
+
+        /**
+         * Scan text and start locating matches of searchTerm, nothing is rendered yet
+         * Must be called from the main thread (the renderer is created here)
+         */
+        suspend fun prepare(
+            context: Context,
+            repository: TextRepository,
+            text: TextEntity,
+            searchTerm: String?
+        ): PreparedText {
+            val model = ReadingModel.scan(text, repository)
+
+            val appContext = context.applicationContext
+            val scope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
+            val renderer = PageRenderer(appContext, scope, searchTerm) { position ->
+                model.contentAt(position)
+            }
+            return PreparedText(text, model, searchTerm, renderer, appContext, scope)
+        }
+
+        /**
+         * Program as one continuous text - every text of it starts with its title as a
+         * header, followed by its own headers and pages, so the reader (and the table of
+         * contents) moves through the whole program without opening texts one by one.
+         * Texts that no longer exist are left out.
+         */
+        suspend fun prepareProgram(
+            context: Context,
+            repository: TextRepository,
+            program: ProgramManager.Program
+        ): PreparedText {
+            val texts = repository.getTexts(program.rids.distinct()).associateBy { it.rid }
+
+            val content = StringBuilder()
+            program.rids.forEach { rid ->
+                val text = texts[rid] ?: return@forEach
+                content.append(">>").append(text.title.replace(HEADER_BREAK, " ")).append("<<")
+                content.append(text.rawContent)
+            }
+
+            // Not a stored text - RID 0 is never imported
+            val composite = TextEntity(rid = 0, title = program.name, rawContent = content.toString())
+            return prepare(context, repository, composite, null)
+        }
+    }
+
+    private var warmUpJob: Job? = null
+
+    /**
+     * Page positions with search matches, ascending (none without a search term or
+     * when they can't be located)
+     */
+    val matchPages: Deferred<IntArray> =
+        if (searchTerm == null) CompletableDeferred(IntArray(0)) else scope.async { findMatchPages(searchTerm) }
+
+    /**
+     * Page the reader starts on - the first search match, or the first page
+     */
+    suspend fun startPage(): Int = matchPages.await().firstOrNull() ?: 0
+
+    /**
+     * Locate matching pages without rendering them
+     */
+    private suspend fun findMatchPages(term: String): IntArray {
+        return try {
+            val index = PageTextIndex.build(model)
+            withContext(Dispatchers.Default) { index.findPages(term) }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.e(TAG, "Error locating \"$term\" in ${text.title}", e)
+            IntArray(0)
+        }
+    }
+
+    /**
+     * Load every referenced text, render and pin the first page of every section and
+     * fetch every image into Glide's caches, so no page waits for the database or network
+     * later (programs are read live, possibly offline). No-op if already started.
+     * Must be called from the main thread.
+     */
+    fun warmUp() {
+        if (warmUpJob != null) return
+        warmUpJob = scope.launch {
+            try {
+                model.materializeAll()
+                // Pinned - the renderer's LRU would evict them while the program is read
+                for (section in 0 until model.sectionCount) renderer.pin(model.sectionStart(section))
+
+                val sources = withContext(Dispatchers.Default) {
+                    val seen = HashSet<Any>()
+                    val sources = LinkedHashSet<String>()
+                    model.pages.forEachIndexed { position, page ->
+                        if (position % 32 == 0) ensureActive()
+                        // Repeated pages (N^) share their content
+                        if (!seen.add(page.subRid ?: page.subText ?: page.mainText ?: "")) return@forEachIndexed
+                        IMAGE_SOURCE.findAll(model.contentAt(position)).forEach { sources.add(it.groupValues[1]) }
+                    }
+                    sources
+                }
+                sources.forEach { Glide.with(context).load(it).preload() }
+                Log.d(TAG, "Warmed up ${model.pages.size} pages, ${sources.size} images of ${text.title}")
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Error warming up ${text.title}", e)
+            }
+        }
+    }
+
+    /**
+     * Stop rendering and drop rendered pages
+     */
+    fun close() {
+        renderer.onPageReady = null
+        renderer.clear()
+        scope.cancel()
+    }
+}
@@ -0,0 +1,110 @@
+package com.convocatis.app.utils
+
+import android.content.Context
+import android.content.SharedPreferences
+import android.util.Log
+import org.json.JSONArray
+import org.json.JSONException
+import org.json.JSONObject
+
+/**
+ * Manages event programs (ordered lists of texts read one after another) using SharedPreferences
+ * Programs are stored as one JSON array, texts by RID in reading order
+ */
+class ProgramManager(context: Context) {
+
+    private val prefs: SharedPreferences = context.getSharedPreferences(
+        PREFS_NAME,
+        Context.MODE_PRIVATE
+    )
+
+    companion object {
+        private const val TAG = "ProgramManager"
+        private const val PREFS_NAME = "programs"
+        private const val KEY_PROGRAMS = "programs_json"
+    }
+
+    /**
+     * Program with its texts (RIDs) in reading order
+     */
+    data class Program(val id: Long, val name: String, val rids: List<Long>)
+
+    /**
+     * Get all programs, in creation order
+     */
+    fun getPrograms(): List<Program> {
+        val json = prefs.getString(KEY_PROGRAMS, null) ?: return emptyList()
+        return try {
+            val array = JSONArray(json)
+            (0 until array.length()).map { i ->
+                val item = array.getJSONObject(i)
+                val rids = item.getJSONArray("rids")
+                Program(
+                    id = item.getLong("id"),
+                    name = item.getString("name"),
+                    rids = (0 until rids.length()).map { rids.getLong(it) }
+                )
+            }
+        } catch (e: JSONException) {
+            Log.e(TAG, "Error reading programs", e)
+            emptyList()
+        }
+    }
+
+    fun getProgram(id: Long): Program? = getPrograms().firstOrNull { it.id == id }
+
+    /**
+     * Create an empty program
+     */
+    fun createProgram(name: String): Program {
+        val programs = getPrograms()
+        val program = Program((programs.maxOfOrNull { it.id } ?: 0) + 1, name.trim(), emptyList())
+        savePrograms(programs + program)
+        return program
+    }
+
+    fun deleteProgram(id: Long) {
+        savePrograms(getPrograms().filter { it.id != id })
+    }
+
+    /**
+     * Append text to the end of a program (a text may be read more than once)
+     */
+    fun addText(id: Long, rid: Long) {
+        update(id) { it + rid }
+    }
+
+    /**
+     * Remove the text at position
+     */
+    fun removeText(id: Long, position: Int) {
+        update(id) { rids -> rids.filterIndexed { index, _ -> index != position } }
+    }
+
+    /**
+     * Move the text at position one place earlier
+     */
+    fun moveTextUp(id: Long, position: Int) {
+        update(id) { rids ->
+            if (position !in 1 until rids.size) return@update rids
+            rids.toMutableList().apply { add(position - 1, removeAt(position)) }
+        }
+    }
+
+    private fun update(id: Long, change: (List<Long>) -> List<Long>) {
+        savePrograms(getPrograms().map { if (it.id == id) it.copy(rids = change(it.rids)) else it })
+    }
+
+    private fun savePrograms(programs: List<Program>) {
+        val array = JSONArray()
+        programs.forEach { program ->
+            array.put(
+                JSONObject()
+                    .put("id", program.id)
+                    .put("name", program.name)
+                    .put("rids", JSONArray(program.rids))
+            )
+        }
+        prefs.edit().putString(KEY_PROGRAMS, array.toString()).apply()
+    }
+}
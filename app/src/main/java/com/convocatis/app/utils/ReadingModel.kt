@@ -0,0 +1,618 @@
+package com.convocatis.app.utils
+
+import android.util.Log
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.repository.TextRepository
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+
+/**
+ * Lazy page model for two-level reading (headers on top, pages on bottom)
+ *
+ * [scan] builds the complete page structure (headers, repetitions, progress counters)
+ * from the raw text only - %RID references are not loaded at that point.
+ * Referenced texts are loaded per section (one header block, like
+ * TextContentParser.HeaderSection) when a page of that section is needed, so the
+ * first page can be shown without loading every reference of a long text.
+ */
+class ReadingModel private constructor(
+    private val repository: TextRepository,
+    val pages: List<PageData>,
+    private val sectionStarts: IntArray,  // First page of each section
+    val outline: Outline
+) {
+
+    companion object {
+        private const val TAG = "ReadingModel"
+
+        /**
+         * Scan text into pages (runs on Dispatchers.Default)
+         * Based on the original Java parseText() logic
+         */
+        suspend fun scan(text: TextEntity, repository: TextRepository): ReadingModel = withContext(Dispatchers.Default) {
+            // Header references (">>Header<<%50") are skipped when the text doesn't exist,
+            // so their existence is checked up front - one query, no content loaded
+            val headerRids = findHeaderReferences(text.rawContent)
+            val existingRids = if (headerRids.isEmpty()) {
+                emptySet()
+            } else {
+                try {
+                    repository.getExistingRids(headerRids)
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error checking references", e)
+                    emptySet()
+                }
+            }
+
+            Scanner(text.rawContent, existingRids).run().let { scanner ->
+                ReadingModel(repository, scanner.pages, scanner.sectionStarts.toIntArray(), scanner.outline)
+            }
+        }
+
+        /**
+         * Collect RIDs directly following a header end ("<<%50")
+         */
+        private fun findHeaderReferences(text: String): List<Long> {
+            val rids = LinkedHashSet<Long>()
+            var index = text.indexOf("<<%")
+            while (index != -1) {
+                val referenceEndIndex = text.indexOfAny(charArrayOf('|', '>'), index + 3)
+                    .takeIf { it != -1 } ?: text.length
+                parseReference(text.substring(index + 2, referenceEndIndex))?.let { rids.add(it) }
+                index = text.indexOf("<<%", index + 3)
+            }
+            return rids.toList()
+        }
+
+        /**
+         * Parse reference (e.g., "%50" -> 50), null if it isn't one
+         */
+        private fun parseReference(reference: String): Long? {
+            val trimmed = reference.trim()
+            if (!trimmed.startsWith("%")) return null
+            return trimmed.removePrefix("%").toLongOrNull()
+        }
+    }
+
+    /**
+     * Data class representing a single page with main and sub text
+     */
+    data class PageData(
+        val mainText: String?,
+        val subText: String?,      // Inline page content (also the fallback for an unresolved subRid)
+        val mainProgress: Int,
+        val mainCount: Int,
+        val subProgress: Int,
+        val subCount: Int,
+        val secondaryProgress: Int,
+        val secondaryCount: Int,
+        val isRepeatedSegment: Boolean = false,  // True if segment has repetition (N^)
+        val headerIndex: Int = 0,  // Index among headers only (0-based)
+        val headerCount: Int = 0,  // Total number of unique headers
+        val subRid: Long? = null,  // Page content is referenced text (%RID), loaded with its section
+        val sectionIndex: Int = 0
+    ) {
+        val hasSubText: Boolean
+            get() = subText != null || subRid != null
+
+        val isSubTextEmpty: Boolean
+            get() = subRid == null && subText.isNullOrEmpty()
+    }
+
+    /**
+     * Header outline: header -> first page, plus precomputed header jump targets
+     *
+     * Pages are grouped into runs of consecutive pages with the same header. Each run
+     * stores the page that "next header" / "previous header" lead to, so a jump is
+     * a binary search over run starts instead of a scan over pages.
+     */
+    class Outline(
+        val titles: List<String>,          // Header index -> header text
+        val firstPages: IntArray,          // Header index -> first page with that header
+        private val runStarts: IntArray,   // First page of each run
+        private val runNext: IntArray,     // Run -> page of next header, -1 if none
+        private val runPrevious: IntArray  // Run -> first page of previous header, -1 if none
+    ) {
+        val headerCount: Int
+            get() = titles.size
+
+        /**
+         * First page of the next header after [position], or -1
+         */
+        fun nextHeaderPage(position: Int): Int = runOf(position)?.let { runNext[it] } ?: -1
+
+        /**
+         * First page of the header before [position], or -1
+         */
+        fun previousHeaderPage(position: Int): Int = runOf(position)?.let { runPrevious[it] } ?: -1
+
+        private fun runOf(position: Int): Int? {
+            if (runStarts.isEmpty() || position < 0) return null
+            val index = runStarts.binarySearch(position)
+            return if (index >= 0) index else (-index - 2).coerceAtLeast(0)
+        }
+    }
+
+    /**
+     * Page content before reference resolution: inline text and/or %RID
+     * Pages are compared by [key], so repeated references group like repeated text
+     */
+    private class SubText(val text: String?, val rid: Long?) {
+        val key: String? = if (rid != null) "%$rid" else text
+    }
+
+    private val mutex = Mutex()
+    private val materialized = BooleanArray(sectionStarts.size)
+    private val resolved = HashMap<Long, String?>()  // RID -> raw content (null if missing)
+
+    val sectionCount: Int
+        get() = sectionStarts.size
+
+    /**
+     * First page of a section
+     */
+    fun sectionStart(section: Int): Int = sectionStarts[section]
+
+    /**
+     * Section of a page (binary search over section starts)
+     */
+    fun sectionOf(position: Int): Int {
+        val index = sectionStarts.binarySearch(position)
+        return if (index >= 0) index else (-index - 2).coerceAtLeast(0)
+    }
+
+    /**
+     * Page content, loading referenced texts of the page's section first if needed
+     */
+    suspend fun contentAt(position: Int): String {
+        val page = pages[position]
+        val rid = page.subRid ?: return page.subText ?: page.mainText ?: ""
+
+        materializeSection(page.sectionIndex)
+        val content = mutex.withLock { resolved[rid] }
+        return content ?: page.subText ?: page.mainText ?: ""
+    }
+
+    /**
+     * Load all referenced texts of a section (no-op if already loaded)
+     */
+    suspend fun materializeSection(section: Int) {
+        if (section !in 0 until sectionCount) return
+
+        mutex.withLock {
+            if (materialized[section]) return
+
+            val start = sectionStarts[section]
+            val end = if (section + 1 < sectionCount) sectionStarts[section + 1] else pages.size
+            val rids = LinkedHashSet<Long>()
+            for (i in start until end) {
+                pages[i].subRid?.let { if (!resolved.containsKey(it)) rids.add(it) }
+            }
+
+            if (!loadReferences(rids, "section $section")) return
+
+            materialized[section] = true
+        }
+    }
+
+    /**
+     * Load referenced texts of all sections at once (in-text search needs every page)
+     */
+    suspend fun materializeAll() {
+        mutex.withLock {
+            val rids = LinkedHashSet<Long>()
+            pages.forEach { page ->
+                page.subRid?.let { if (!resolved.containsKey(it)) rids.add(it) }
+            }
+
+            if (!loadReferences(rids, "all sections")) return
+            materialized.fill(true)
+        }
+    }
+
+    /**
+     * Load texts into [resolved] (caller holds the mutex), false on error
+     */
+    private suspend fun loadReferences(rids: Collection<Long>, what: String): Boolean {
+        if (rids.isEmpty()) return true
+        return try {
+            val texts = repository.getTexts(rids).associateBy { it.rid }
+            rids.forEach { rid -> resolved[rid] = texts[rid]?.rawContent }
+            true
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            // Leave unmaterialized - the next request retries
+            Log.e(TAG, "Error resolving references of $what", e)
+            false
+        }
+    }
+
+    /**
+     * Single pass over the raw text producing pages and section starts
+     */
+    private class Scanner(
+        private val text: String,
+        private val existingRids: Set<Long>
+    ) {
+        val pages = ArrayList<PageData>()
+        val sectionStarts = ArrayList<Int>()
+        var outline = Outline(emptyList(), IntArray(0), IntArray(0), IntArray(0), IntArray(0))
+
+        fun run(): Scanner {
+            var currentMainText: String? = null
+            var currentRepetitionCount = 1
+            val currentSubtexts = ArrayList<SubText>()
+
+            var currentIndex = 0
+
+            while (true) {
+                val mainTextIndex = text.indexOf(">>", currentIndex)
+                val subTextIndex = text.indexOf("|", currentIndex)
+
+                if (mainTextIndex == -1 && subTextIndex == -1) {
+                    break
+                }
+
+                if (mainTextIndex != -1 && (subTextIndex == -1 || subTextIndex > mainTextIndex)) {
+                    // Found main text (header)
+
+                    // Process previous main/sub texts
+                    if (currentMainText != null || currentSubtexts.isNotEmpty()) {
+                        processCurrentTexts(currentMainText, currentSubtexts, currentRepetitionCount)
+                        currentSubtexts.clear()
+                    }
+
+                    val endMainTextIndex = text.indexOf("<<", mainTextIndex).takeIf { it != -1 } ?: text.length
+                    currentIndex = endMainTextIndex + 2
+
+                    currentMainText = text.substring(mainTextIndex + 2, endMainTextIndex)
+
+                    // Check for repetition (e.g., "3^Header text")
+                    val repetitionSignIndex = currentMainText.indexOf("^")
+                    currentRepetitionCount = 1
+
+                    if (repetitionSignIndex > -1) {
+                        try {
+                            val repetitionString = currentMainText.substring(0, repetitionSignIndex)
+                            currentRepetitionCount = repetitionString.toInt().coerceIn(1, 1000)
+                            currentMainText = currentMainText.substring(repetitionSignIndex + 1)
+                        } catch (e: NumberFormatException) {
+                            // Ignore if not a valid number
+                        }
+                    }
+
+                    // Check for content after >> << (reference or text without |)
+                    if (currentIndex < text.length) {
+                        when {
+                            // Reference (e.g., ">>Header<<%50")
+                            text[currentIndex] == '%' -> {
+                                val referenceEndIndex = text.indexOfAny(charArrayOf('|', '>'), currentIndex + 1)
+                                    .takeIf { it != -1 } ?: text.length
+                                val referenceText = text.substring(currentIndex, referenceEndIndex).trim()
+                                currentIndex = referenceEndIndex
+
+                                // Add as sub text, content is loaded with the section
+                                val rid = parseReference(referenceText)
+                                if (rid != null && rid in existingRids) {
+                                    currentSubtexts.add(SubText(null, rid))
+                                }
+                            }
+                            // Text without | (e.g., ">>Header<<\nPIRMAIS NOSLĒPUMS")
+                            text[currentIndex] != '|' && text[currentIndex] != '>' -> {
+                                // Skip whitespace
+                                while (currentIndex < text.length && text[currentIndex].isWhitespace()) {
+                                    currentIndex++
+                                }
+
+                                // Read until next >> or |
+                                val contentEndIndex1 = text.indexOf(">>", currentIndex).takeIf { it != -1 } ?: Int.MAX_VALUE
+                                val contentEndIndex2 = text.indexOf("|", currentIndex).takeIf { it != -1 } ?: Int.MAX_VALUE
+                                val contentEndIndex = minOf(contentEndIndex1, contentEndIndex2, text.length)
+
+                                if (contentEndIndex > currentIndex) {
+                                    val contentText = text.substring(currentIndex, contentEndIndex).trim()
+                                    if (contentText.isNotEmpty()) {
+                                        currentSubtexts.add(SubText(contentText, null))
+                                    }
+                                    currentIndex = contentEndIndex
+                                }
+                            }
+                        }
+                    }
+                } else {
+                    // Found sub text (page)
+                    val endSubTextIndex1 = text.indexOf(">>", subTextIndex + 1).takeIf { it != -1 } ?: Int.MAX_VALUE
+                    val endSubTextIndex2 = text.indexOf("|", subTextIndex + 1).takeIf { it != -1 } ?: Int.MAX_VALUE
+                    val endSubTextIndex = minOf(endSubTextIndex1, endSubTextIndex2, text.length)
+
+                    currentIndex = endSubTextIndex
+
+                    var subText = text.substring(subTextIndex + 1, endSubTextIndex)
+
+                    // Check for repetition (e.g., "10^Page content")
+                    val repetitionSignIndex = subText.indexOf("^")
+                    var repetitionCount = 1
+
+                    if (repetitionSignIndex > -1) {
+                        try {
+                            val repetitionString = subText.substring(0, repetitionSignIndex)
+                            repetitionCount = repetitionString.toInt().coerceIn(1, 1000)
+                            subText = subText.substring(repetitionSignIndex + 1)
+                        } catch (e: NumberFormatException) {
+                            // Ignore if not a valid number
+                        }
+                    }
+
+                    // Sub text may be a reference (e.g., "%50") - raw text stays as fallback
+                    val finalSubText = SubText(subText, parseReference(subText))
+
+                    // Add repeated sub texts
+                    repeat(repetitionCount) {
+                        currentSubtexts.add(finalSubText)
+                    }
+                }
+
+                if (currentIndex >= text.length) {
+                    break
+                }
+            }
+
+            // Process remaining texts
+            if (currentMainText != null || currentSubtexts.isNotEmpty()) {
+                processCurrentTexts(currentMainText, currentSubtexts, currentRepetitionCount)
+            }
+
+            // If no pages were created, add the raw text as a single page
+            if (pages.isEmpty()) {
+                sectionStarts.add(0)
+                addPageData(null, SubText(text, null), 0, 1, 0, 1, 0, 1)
+            }
+
+            // Recalculate segment progress for proper counting
+            recalculateSegmentProgress()
+            return this
+        }
+
+        /**
+         * Process current main text and sub texts into pages (one section)
+         */
+        private fun processCurrentTexts(
+            mainText: String?,
+            subTexts: List<SubText>,
+            repetitionCount: Int
+        ) {
+            sectionStarts.add(pages.size)
+
+            if (subTexts.isEmpty()) {
+                // Only main text, repeat it
+                val isRepeated = repetitionCount > 1
+                repeat(repetitionCount) { i ->
+                    addPageData(mainText, null, i, repetitionCount, 0, 1, i, repetitionCount, isRepeated)
+                }
+            } else {
+                val actualRepetitionCount = if (mainText == null) 1 else repetitionCount
+
+                repeat(actualRepetitionCount) { c ->
+                    var subRepetition = 0
+                    var subCount = 0
+                    var prevKey: String? = null
+
+                    for (i in subTexts.indices) {
+                        val subText = subTexts[i]
+
+                        if (prevKey == null || prevKey != subText.key) {
+                            subRepetition = 0
+                            prevKey = subText.key
+
+                            // Count consecutive identical sub texts
+                            subCount = 0
+                            for (j in i until subTexts.size) {
+                                if (subTexts[j].key == subText.key) {
+                                    subCount++
+                                } else {
+                                    break
+                                }
+                            }
+                        } else {
+                            subRepetition++
+                        }
+
+                        // Mark as repeated if subCount > 1
+                        val isRepeated = subCount > 1
+
+                        addPageData(
+                            mainText,
+                            subText,
+                            c,
+                            actualRepetitionCount,
+                            subRepetition,
+                            subCount,
+                            c * subTexts.size + i,
+                            actualRepetitionCount * subTexts.size,
+                            isRepeated
+                        )
+                    }
+                }
+            }
+        }
+
+        /**
+         * Add a page to the data list
+         */
+        private fun addPageData(
+            mainText: String?,
+            subText: SubText?,
+            mainProgress: Int,
+            mainCount: Int,
+            subProgress: Int,
+            subCount: Int,
+            secondaryProgress: Int,
+            secondaryCount: Int,
+            isRepeated: Boolean = false
+        ) {
+            pages.add(
+                PageData(
+                    mainText = mainText,
+                    subText = subText?.text,
+                    mainProgress = mainProgress,
+                    mainCount = mainCount,
+                    subProgress = subProgress,
+                    subCount = subCount,
+                    secondaryProgress = secondaryProgress,
+                    secondaryCount = secondaryCount,
+                    isRepeatedSegment = isRepeated,
+                    subRid = subText?.rid,
+                    sectionIndex = sectionStarts.size - 1
+                )
+            )
+        }
+
+        /**
+         * Recalculate segment progress to group consecutive pages
+         * Grouping rules:
+         * - Group consecutive non-repeated pages (isRepeatedSegment=false) with same mainText
+         * - Group consecutive repeated pages (isRepeatedSegment=true) with same sub text and mainText
+         * - Header change starts a new group
+         * Also calculates header indices for top navigation
+         */
+        private fun recalculateSegmentProgress() {
+            if (pages.isEmpty()) return
+
+            // Group consecutive pages by header and repetition status
+            val segments = mutableListOf<MutableList<Int>>()
+            var currentSegment = mutableListOf<Int>()
+            var prevMainText: String? = null
+            var prevSubKey: String? = null
+            var prevIsRepeated: Boolean? = null
+
+            pages.forEachIndexed { index, page ->
+                val mainText = page.mainText
+                val subKey = if (page.subRid != null) "%${page.subRid}" else page.subText
+                val isRepeated = page.isRepeatedSegment
+
+                // Start new segment if:
+                // 1. mainText (header) changed
+                // 2. isRepeated status changed
+                // 3. If isRepeated=true, sub text changed (repeated content changed)
+                val shouldStartNewSegment = if (prevMainText != null) {
+                    // Header changed
+                    mainText != prevMainText ||
+                    // Repetition status changed
+                    isRepeated != prevIsRepeated ||
+                    // For repeated segments, sub text must be same
+                    (isRepeated && subKey != prevSubKey)
+                } else {
+                    false
+                }
+
+                if (shouldStartNewSegment) {
+                    if (currentSegment.isNotEmpty()) {
+                        segments.add(currentSegment)
+                        currentSegment = mutableListOf()
+                    }
+                }
+
+                currentSegment.add(index)
+                prevMainText = mainText
+                prevSubKey = subKey
+                prevIsRepeated = isRepeated
+            }
+
+            // Add final segment
+            if (currentSegment.isNotEmpty()) {
+                segments.add(currentSegment)
+            }
+
+            // Calculate header indices - find unique headers in order
+            val headersInOrder = mutableListOf<String>()
+            val headerToIndex = mutableMapOf<String, Int>()
+
+            pages.forEach { page ->
+                val header = page.mainText
+                if (header != null && !headerToIndex.containsKey(header)) {
+                    headerToIndex[header] = headersInOrder.size
+                    headersInOrder.add(header)
+                }
+            }
+
+            val totalHeaders = headersInOrder.size
+
+            // Update pages with new segment-based progress and header info
+            segments.forEachIndexed { segmentIndex, pageIndices ->
+                pageIndices.forEachIndexed { positionInSegment, pageIndex ->
+                    val oldPage = pages[pageIndex]
+                    val headerIdx = if (oldPage.mainText != null) {
+                        headerToIndex[oldPage.mainText] ?: 0
+                    } else {
+                        0
+                    }
+
+                    pages[pageIndex] = oldPage.copy(
+                        mainProgress = segmentIndex,
+                        mainCount = segments.size,
+                        subProgress = positionInSegment,
+                        subCount = pageIndices.size,
+                        headerIndex = headerIdx,
+                        headerCount = totalHeaders
+                    )
+                }
+            }
+
+            outline = buildOutline(headersInOrder)
+        }
+
+        /**
+         * Build header outline and jump targets (same targets as the former page-by-page scans:
+         * next = first later page with a higher header index,
+         * previous = first page of the nearest earlier header with a lower header index)
+         */
+        private fun buildOutline(headersInOrder: List<String>): Outline {
+            val firstPages = IntArray(headersInOrder.size) { -1 }
+            val runStarts = ArrayList<Int>()
+            val runHeader = ArrayList<Int>()      // Header index of the run (0 without header)
+            val runHasHeader = ArrayList<Boolean>()
+
+            pages.forEachIndexed { index, page ->
+                val hasHeader = page.mainText != null
+                if (hasHeader && firstPages[page.headerIndex] == -1) firstPages[page.headerIndex] = index
+
+                val last = runStarts.size - 1
+                if (last < 0 || runHeader[last] != page.headerIndex || runHasHeader[last] != hasHeader) {
+                    runStarts.add(index)
+                    runHeader.add(page.headerIndex)
+                    runHasHeader.add(hasHeader)
+                }
+            }
+
+            val runCount = runStarts.size
+            val runNext = IntArray(runCount) { -1 }
+            val runPrevious = IntArray(runCount) { -1 }
+
+            for (run in 0 until runCount) {
+                val header = runHeader[run]
+
+                // Runs with increasing headers are adjacent in practice - these loops end after one step
+                for (other in run + 1 until runCount) {
+                    if (runHasHeader[other] && runHeader[other] > header) {
+                        runNext[run] = runStarts[other]
+                        break
+                    }
+                }
+                for (other in run - 1 downTo 0) {
+                    if (runHasHeader[other] && runHeader[other] < header) {
+                        runPrevious[run] = firstPages[runHeader[other]]
+                        break
+                    }
+                }
+            }
+
+            return Outline(headersInOrder, firstPages, runStarts.toIntArray(), runNext, runPrevious)
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.convocatis.app.utils
+
+/**
+ * Diacritics-insensitive normalization used for sorting and alphabet grouping
+ */
+object TextNormalizer {
+
+    private val DIACRITICS = "\\p{Mn}".toRegex()
+
+    /**
+     * Normalize character by removing diacritics (works for all European languages)
+     * Examples: ā→a, č→c, é→e, ñ→n, ö→o, ß→ss, etc.
+     */
+    fun normalizeChar(char: Char): Char {
+        val normalized = java.text.Normalizer.normalize(char.toString(), java.text.Normalizer.Form.NFD)
+        // Remove all diacritical marks (Unicode category "NonSpacingMark")
+        val withoutDiacritics = normalized.replace(DIACRITICS, "")
+        // Handle special cases like ß → ss, œ → oe, æ → ae
+        return when (withoutDiacritics.lowercase()) {
+            "ß" -> 's'
+            "œ" -> 'o'
+            "æ" -> 'a'
+            else -> withoutDiacritics.firstOrNull()?.lowercaseChar() ?: char.lowercaseChar()
+        }
+    }
+
+    /**
+     * Normalize string for sorting (removes diacritics from all characters)
+     */
+    fun normalizeString(str: String): String {
+        val normalized = java.text.Normalizer.normalize(str, java.text.Normalizer.Form.NFD)
+        // Remove all diacritical marks
+        return normalized.replace(DIACRITICS, "").lowercase()
+    }
+}
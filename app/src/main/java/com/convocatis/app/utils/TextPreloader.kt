@@ -0,0 +1,154 @@
+package com.convocatis.app.utils
+
+import android.content.Context
+import android.util.Log
+import com.convocatis.app.repository.TextRepository
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.yield
+
+/**
+ * Prepares the texts the reader is likely to open next (e.g. the previous and next
+ * text of the list) in the background, so switching to one of them is instant
+ *
+ * Preloading starts after a short delay and prepares one text at a time, so it
+ * never competes with the pages of the text being read. Each prepared text gets its
+ * start page rendered. Only the texts of the last [preload] call are kept, until the
+ * reader is closed ([clear]).
+ *
+ * A program the user is looking at is prepared as a whole ([preloadProgram]) and
+ * warmed up completely before it is started.
+ *
+ * All methods must be called from the main thread.
+ */
+object TextPreloader {
+
+    private const val TAG = "TextPreloader"
+    private const val START_DELAY_MS = 300L
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Main)
+    private val prepared = HashMap<Long, PreparedText>()  // RID -> prepared text
+    private var job: Job? = null
+
+    private var programJob: Job? = null
+    private var programFor: ProgramManager.Program? = null  // Prepared or being prepared
+    private var preparedProgram: Pair<ProgramManager.Program, PreparedText>? = null
+
+    /**
+     * Prepare texts with RIDs (in this order), dropping previously prepared other texts
+     */
+    fun preload(context: Context, repository: TextRepository, rids: List<Long>, searchTerm: String?) {
+        job?.cancel()
+
+        val wanted = rids.toSet()
+        prepared.entries.removeAll { (rid, text) ->
+            val stale = rid !in wanted || text.searchTerm != searchTerm
+            if (stale) text.close()
+            stale
+        }
+
+        val appContext = context.applicationContext
+        job = scope.launch {
+            delay(START_DELAY_MS)
+            rids.forEach { rid ->
+                if (prepared.containsKey(rid)) return@forEach
+                yield()
+                try {
+                    val text = repository.getText(rid) ?: return@forEach
+                    val preparedText = PreparedText.prepare(appContext, repository, text, searchTerm)
+                    prepared[rid] = preparedText
+                    preparedText.renderer.request(preparedText.startPage())
+                    Log.d(TAG, "Prepared text $rid (${preparedText.model.pages.size} pages)")
+                } catch (e: CancellationException) {
+                    throw e
+                } catch (e: Exception) {
+                    Log.e(TAG, "Error preparing text $rid", e)
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepare and warm up a program, dropping a previously prepared one
+     */
+    fun preloadProgram(context: Context, repository: TextRepository, program: ProgramManager.Program) {
+        if (programFor == program) return
+        releaseProgram()
+        programFor = program
+
+        val appContext = context.applicationContext
+        programJob = scope.launch {
+            try {
+                val prepared = PreparedText.prepareProgram(appContext, repository, program)
+                prepared.warmUp()
+                preparedProgram = program to prepared
+                Log.d(TAG, "Prepared program ${program.id} (${prepared.model.pages.size} pages)")
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Error preparing program ${program.id}", e)
+                programFor = null
+            }
+        }
+    }
+
+    /**
+     * Take over a prepared program (the caller closes it), waiting for it if it is
+     * being prepared - null if it isn't prepared or was changed since. A program
+     * prepared for another version is dropped.
+     */
+    suspend fun takeProgram(program: ProgramManager.Program): PreparedText? {
+        if (programFor == program) programJob?.join()
+
+        val (preparedFor, prepared) = preparedProgram ?: return null
+        preparedProgram = null
+        programFor = null
+        if (preparedFor != program) {
+            prepared.close()
+            return null
+        }
+        return prepared
+    }
+
+    /**
+     * Drop the program with id if it is prepared or being prepared (e.g. it was deleted)
+     */
+    fun dropProgram(id: Long) {
+        if (programFor?.id == id || preparedProgram?.first?.id == id) releaseProgram()
+    }
+
+    private fun releaseProgram() {
+        programJob?.cancel()
+        programJob = null
+        preparedProgram?.second?.close()
+        preparedProgram = null
+        programFor = null
+    }
+
+    /**
+     * Take over a prepared text (the caller closes it), null if it isn't prepared
+     * for this search term
+     */
+    fun take(rid: Long, searchTerm: String?): PreparedText? {
+        val text = prepared[rid]?.takeIf { it.searchTerm == searchTerm } ?: return null
+        prepared.remove(rid)
+        return text
+    }
+
+    /**
+     * Stop preloading and drop everything prepared - when the reader is closed, or the
+     * texts were re-imported
+     */
+    fun clear() {
+        job?.cancel()
+        job = null
+        prepared.values.forEach { it.close() }
+        prepared.clear()
+        releaseProgram()
+    }
+}
@@ -0,0 +1,174 @@
+package com.convocatis.app.viewmodel
+
+import android.util.AtomicFile
+import android.util.Log
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.search.LetterIndex
+import com.convocatis.app.utils.AdvertisementTexts
+import com.convocatis.app.utils.TextTypesParser
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileNotFoundException
+
+/**
+ * Last prepared text list (visible page, filter inputs, letter index, alphabet groups)
+ *
+ * Written to a small file whenever the list changes, read on cold start so the list
+ * can be drawn before Room is queried. Rows carry no content (rawContent is empty,
+ * except for advertisement entries) - the database result replaces them right after.
+ */
+class TextListSnapshot(
+    val filter: TextTypesParser.CategoryFilter,
+    val sortAscending: Boolean,
+    val showOnlyFavorites: Boolean,
+    private val state: TextListViewModel.TextListState
+) {
+
+    companion object {
+        private const val TAG = "TextListSnapshot"
+        private const val FORMAT_VERSION = 1
+
+        /**
+         * Read snapshot, null if missing or unreadable
+         */
+        fun read(file: File): TextListSnapshot? {
+            return try {
+                DataInputStream(AtomicFile(file).openRead().buffered()).use { input ->
+                    if (input.readInt() != FORMAT_VERSION) return null
+                    readSnapshot(input)
+                }
+            } catch (e: FileNotFoundException) {
+                null
+            } catch (e: Exception) {
+                Log.w(TAG, "Ignoring unreadable list snapshot", e)
+                null
+            }
+        }
+
+        private fun readSnapshot(input: DataInputStream): TextListSnapshot {
+            val filter = TextTypesParser.CategoryFilter(
+                type = input.readInt().takeIf { it != -1 },
+                code = readNullableString(input),
+                displayText = input.readUTF()
+            )
+            val sortAscending = input.readBoolean()
+            val showOnlyFavorites = input.readBoolean()
+            val page = input.readInt()
+            val pageStart = input.readInt()
+            val totalPages = input.readInt()
+            val showAlphabet = input.readBoolean()
+
+            val rows = List(input.readInt()) {
+                val rid = input.readLong()
+                val title = input.readUTF()
+                val categoryType = input.readInt().takeIf { it != -1 }
+                val categoryCode = readNullableString(input)
+                val languageCode = input.readUTF()
+                val isFavorite = input.readBoolean()
+
+                // Advertisement entries are built in, everything else gets content from Room
+                val text = AdvertisementTexts.entries.firstOrNull { it.rid == rid }
+                    ?: TextEntity(rid, title, "", categoryType, categoryCode, languageCode)
+                TextListViewModel.TextRow(text, isFavorite)
+            }
+
+            val groups = List(input.readInt()) {
+                TextListViewModel.AlphabetGroup(
+                    letters = input.readUTF().toList(),
+                    count = input.readInt(),
+                    firstRow = input.readInt()
+                )
+            }
+
+            val sectionCount = input.readInt()
+            val letters = CharArray(sectionCount) { input.readChar() }
+            val sectionRows = IntArray(sectionCount) { input.readInt() }
+
+            val state = TextListViewModel.TextListState(
+                pageItems = rows,
+                facets = null,
+                alphabetGroups = groups,
+                showAlphabet = showAlphabet,
+                letterIndex = LetterIndex(letters, sectionRows),
+                page = page,
+                pageStart = pageStart,
+                totalPages = totalPages,
+                fromSnapshot = true
+            )
+            return TextListSnapshot(filter, sortAscending, showOnlyFavorites, state)
+        }
+
+        private fun readNullableString(input: DataInputStream): String? {
+            return if (input.readBoolean()) input.readUTF() else null
+        }
+
+        private fun writeNullableString(output: DataOutputStream, value: String?) {
+            output.writeBoolean(value != null)
+            if (value != null) output.writeUTF(value)
+        }
+    }
+
+    /**
+     * Snapshot state with favorite marks refreshed (favorites may have changed since)
+     */
+    fun toState(favoriteRids: Set<Long>): TextListViewModel.TextListState {
+        return state.copy(pageItems = state.pageItems.map { it.copy(isFavorite = favoriteRids.contains(it.text.rid)) })
+    }
+
+    /**
+     * Write snapshot atomically - a crash mid-write keeps the previous one
+     */
+    fun write(file: File) {
+        val atomicFile = AtomicFile(file)
+        val stream = try {
+            atomicFile.startWrite()
+        } catch (e: Exception) {
+            Log.e(TAG, "Error writing list snapshot", e)
+            return
+        }
+
+        try {
+            val output = DataOutputStream(stream.buffered())
+            output.writeInt(FORMAT_VERSION)
+
+            output.writeInt(filter.type ?: -1)
+            writeNullableString(output, filter.code)
+            output.writeUTF(filter.displayText)
+            output.writeBoolean(sortAscending)
+            output.writeBoolean(showOnlyFavorites)
+            output.writeInt(state.page)
+            output.writeInt(state.pageStart)
+            output.writeInt(state.totalPages)
+            output.writeBoolean(state.showAlphabet)
+
+            output.writeInt(state.pageItems.size)
+            state.pageItems.forEach { row ->
+                output.writeLong(row.text.rid)
+                output.writeUTF(row.text.title)
+                output.writeInt(row.text.categoryType ?: -1)
+                writeNullableString(output, row.text.categoryCode)
+                output.writeUTF(row.text.languageCode)
+                output.writeBoolean(row.isFavorite)
+            }
+
+            output.writeInt(state.alphabetGroups.size)
+            state.alphabetGroups.forEach { group ->
+                output.writeUTF(String(group.letters.toCharArray()))
+                output.writeInt(group.count)
+                output.writeInt(group.firstRow)
+            }
+
+            val letterIndex = state.letterIndex
+            output.writeInt(letterIndex.letters.size)
+            letterIndex.letters.forEach { output.writeChar(it.code) }
+            letterIndex.rows.forEach { output.writeInt(it) }
+
+            output.flush()
+            atomicFile.finishWrite(stream)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error writing list snapshot", e)
+            atomicFile.failWrite(stream)
+        }
+    }
+}
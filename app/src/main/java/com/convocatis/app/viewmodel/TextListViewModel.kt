@@ -0,0 +1,716 @@
+package com.convocatis.app.viewmodel
+
+import android.app.Application
+import android.content.Context
+import android.content.SharedPreferences
+import android.util.LruCache
+import androidx.lifecycle.AndroidViewModel
+import androidx.lifecycle.SavedStateHandle
+import androidx.lifecycle.viewModelScope
+import com.convocatis.app.ConvocatisApplication
+import com.convocatis.app.database.entity.TextEntity
+import com.convocatis.app.search.LetterIndex
+import com.convocatis.app.search.RelevanceScores
+import com.convocatis.app.search.SearchResultCache
+import com.convocatis.app.search.SearchTextIndex
+import com.convocatis.app.search.TextFacets
+import com.convocatis.app.search.TextListIndex
+import com.convocatis.app.search.TextSearchEngine
+import com.convocatis.app.search.TrigramIndex
+import com.convocatis.app.utils.AdvertisementTexts
+import com.convocatis.app.utils.DataImporter
+import com.convocatis.app.utils.FavoritesManager
+import com.convocatis.app.utils.TextTypesParser
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.mapLatest
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.launch
+import java.io.File
+import java.util.BitSet
+
+/**
+ * State holder for the text list (TextsFragment)
+ *
+ * Search term, category filter, sort order, favorites mode and page are combined
+ * with the Room text stream into a single pipeline:
+ * - search input is debounced, the other inputs apply immediately
+ * - a new input cancels the computation still running for the previous one
+ * - filter, sort, letter index and alphabet grouping are memoized, so changing only
+ *   the page doesn't filter and sort the whole list again
+ * - alphabet buttons jump to a row ([LetterIndex]) instead of filtering the list
+ * - search results are ordered by relevance ([RelevanceScores]) - only the rows up
+ *   to the current page are selected and ordered
+ * - everything runs on Dispatchers.Default, the UI only receives [TextListState]
+ * - the last state and scroll anchor outlive the fragment's view, so coming back
+ *   from the reader draws the previous frame without recomputing
+ */
+@OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
+class TextListViewModel(
+    application: Application,
+    private val savedStateHandle: SavedStateHandle
+) : AndroidViewModel(application) {
+
+    companion object {
+        private const val SEARCH_DEBOUNCE_MS = 250L
+        private const val SNAPSHOT_DEBOUNCE_MS = 500L
+        private const val SNAPSHOT_FILE = "text_list_snapshot.bin"
+        private const val SUGGESTION_LIMIT = 8
+        private const val SNIPPET_RADIUS = 40  // Characters of context on each side of a match
+        private const val SNIPPET_CACHE_SIZE = 200
+        private const val FUZZY_FALLBACK_HITS = 3  // Add typo-tolerant title matches below this many hits
+
+        // SharedPreferences keys
+        private const val PREF_LAST_FILTER_TYPE = "last_filter_type"
+        private const val PREF_LAST_FILTER_CODE = "last_filter_code"
+        private const val PREF_LAST_FILTER_DISPLAY = "last_filter_display"
+        private const val PREF_LAST_ALPHABET_FILTER = "last_alphabet_filter"
+        private const val PREF_LAST_PAGE = "last_page"
+
+        // Saved state keys (scroll anchor survives process death with the back stack)
+        private const val STATE_ANCHOR_RID = "anchor_rid"
+        private const val STATE_ANCHOR_OFFSET = "anchor_offset"
+
+        // Pagination configuration - EASY TO MODIFY
+        const val PAGINATION_THRESHOLD = 100  // Show alphabet filter if more than this many items
+        const val ITEMS_PER_PAGE_THRESHOLD = 20  // If letter has more than this, use pagination
+        const val ITEMS_PER_PAGE = 100  // Items per page
+    }
+
+    /**
+     * Data class for alphabet groups (single letter or combined letters like A-B)
+     * firstRow - row (in the whole result list) the group's button jumps to
+     */
+    data class AlphabetGroup(val letters: List<Char>, val count: Int, val firstRow: Int = -1) {
+        fun getLabel(): String = if (letters.size == 1) letters[0].toString() else "${letters.first()}-${letters.last()}"
+        fun matches(char: Char): Boolean = letters.contains(char)
+    }
+
+    /**
+     * One list row - everything the row shows, so DiffUtil can compare rows
+     * searchTerm - search the row was found with (its snippet is computed when shown)
+     */
+    data class TextRow(val text: TextEntity, val isFavorite: Boolean, val searchTerm: String = "")
+
+    /**
+     * Everything the list screen shows for the current inputs
+     */
+    data class TextListState(
+        val pageItems: List<TextRow>,           // Rows on the current page
+        val facets: TextFacets?,                // Facets of all texts (category dropdown counts)
+        val alphabetGroups: List<AlphabetGroup>,
+        val showAlphabet: Boolean,
+        val letterIndex: LetterIndex,           // Letter -> row in the whole result list
+        val page: Int,
+        val pageStart: Int,                     // Row of the first item on the current page
+        val totalPages: Int,
+        val searchTerm: String = "",            // Search the rows were found with
+        val fromSnapshot: Boolean = false       // Cold start snapshot - rows have no content yet
+    )
+
+    /**
+     * First visible row (by RID, so it survives list updates) and its pixel offset
+     */
+    data class ScrollAnchor(val rid: Long, val offset: Int)
+
+    private data class Query(
+        val searchTerm: String,
+        val filter: TextTypesParser.CategoryFilter,
+        val sortAscending: Boolean,
+        val showOnlyFavorites: Boolean,
+        val favoritesVersion: Int
+    )
+
+    private val textDao = ConvocatisApplication.getInstance().database.textDao()
+    private val textRepository = ConvocatisApplication.getInstance().textRepository
+    private val favoritesManager = FavoritesManager(application)
+    private val searchEngine = TextSearchEngine(
+        TrigramIndex.file(application),
+        { DataImporter.datasetVersion(application) },
+        viewModelScope
+    )
+
+    // Row snippets by (RID, search term), main thread only - NO_SNIPPET marks rows without one
+    private val snippets = LruCache<Pair<Long, String>, SearchTextIndex.Snippet>(SNIPPET_CACHE_SIZE)
+    private val noSnippet = SearchTextIndex.Snippet("", 0, 0)
+    private val prefs: SharedPreferences =
+        application.getSharedPreferences("convocatis_prefs", Context.MODE_PRIVATE)
+
+    // Inputs
+    private val searchTerm = MutableStateFlow("")
+    private val _categoryFilter = MutableStateFlow(restoreLastFilter())
+    private val _sortAscending = MutableStateFlow(true)
+    private val _showOnlyFavorites = MutableStateFlow(false)
+    private val favoritesVersion = MutableStateFlow(0)
+    private val page = MutableStateFlow(prefs.getInt(PREF_LAST_PAGE, 0))
+
+    // Last list prepared for the persisted inputs, written in the background
+    private val snapshotFile = File(application.cacheDir, SNAPSHOT_FILE)
+    private val snapshots = MutableStateFlow<TextListSnapshot?>(null)
+
+    val categoryFilter: StateFlow<TextTypesParser.CategoryFilter> = _categoryFilter.asStateFlow()
+
+    val sortAscending: Boolean
+        get() = _sortAscending.value
+
+    var scrollAnchor: ScrollAnchor?
+        get() {
+            val rid = savedStateHandle.get<Long>(STATE_ANCHOR_RID) ?: return null
+            return ScrollAnchor(rid, savedStateHandle.get<Int>(STATE_ANCHOR_OFFSET) ?: 0)
+        }
+        set(value) {
+            savedStateHandle[STATE_ANCHOR_RID] = value?.rid
+            savedStateHandle[STATE_ANCHOR_OFFSET] = value?.offset
+        }
+
+    val showOnlyFavorites: Boolean
+        get() = _showOnlyFavorites.value
+
+    // Memoized stages - only touched by the pipeline, which runs one computation at a time
+    // (the index is also read by title suggestions)
+    @Volatile
+    private var listIndex: TextListIndex? = null
+
+    private var filterSource: TextListIndex? = null
+    private var filterQuery: Pair<String, TextTypesParser.CategoryFilter>? = null
+    private var filterResult = BitSet()
+    private var fuzzyResult = IntArray(0)
+
+    private var sortSource: BitSet? = null
+    private var sortQuery: Query? = null
+    private var sortResult = IntArray(0)
+
+    private var scoresSource: BitSet? = null
+    private var scoresTerm: String? = null
+    private var scoresResult: RelevanceScores? = null
+
+    private var lettersSource: IntArray? = null
+    private var lettersResult = LetterIndex.EMPTY
+
+    private var groupsSource: IntArray? = null
+    private var groupsResult: List<AlphabetGroup> = emptyList()
+
+    // Every row of the latest result (all pages) - ranked results are only ordered on demand
+    @Volatile
+    private var resultRows: ResultRows? = null
+
+    private class ResultRows(val index: TextListIndex, val rows: () -> IntArray)
+
+    // Empty search (clearing the field) applies immediately, typing is debounced
+    private val debouncedSearchTerm = searchTerm
+        .debounce { if (it.isEmpty()) 0L else SEARCH_DEBOUNCE_MS }
+        .distinctUntilChanged()
+
+    private val query = combine(
+        debouncedSearchTerm,
+        _categoryFilter,
+        _sortAscending,
+        _showOnlyFavorites,
+        favoritesVersion
+    ) { search, filter, ascending, favorites, version ->
+        Query(search, filter, ascending, favorites, version)
+    }
+
+    val state: StateFlow<TextListState?> = combine(textDao.observeAllTexts(), query, page) { texts, query, page ->
+        Triple(texts, query, page)
+    }
+        .mapLatest { (texts, query, page) -> compute(texts, query, page) }
+        .flowOn(Dispatchers.Default)
+        // Eagerly - the computed list stays ready while the reader is open (fragment on the
+        // back stack), so returning shows it without re-querying Room and recomputing.
+        // Cold start shows the snapshot until the database result replaces it
+        .stateIn(viewModelScope, SharingStarted.Eagerly, restoreSnapshot())
+
+    // Title autocomplete - independent of the (debounced) full list search
+    private val suggestionQuery = MutableStateFlow("")
+
+    val suggestions: StateFlow<List<TextEntity>> = suggestionQuery
+        .mapLatest { query -> suggestTitles(query) }
+        .flowOn(Dispatchers.Default)
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(5000), emptyList())
+
+    init {
+        viewModelScope.launch(Dispatchers.IO) {
+            snapshots.filterNotNull()
+                .debounce(SNAPSHOT_DEBOUNCE_MS)
+                .collect { it.write(snapshotFile) }
+        }
+    }
+
+    // --- Inputs ---
+
+    fun setSearchTerm(term: String) {
+        searchTerm.value = term
+        suggestionQuery.value = term
+    }
+
+    fun setCategoryFilter(filter: TextTypesParser.CategoryFilter) {
+        _categoryFilter.value = filter
+        // Reset pagination when category filter is used
+        resetPaging()
+        saveLastFilter()
+    }
+
+    /**
+     * Navigate to parent category, false if already at top level
+     */
+    fun navigateToParentCategory(): Boolean {
+        val current = _categoryFilter.value
+        val parent = when {
+            // If filtered by both Type and Code, go back to Type only
+            current.type != null && current.code != null -> TextTypesParser.CategoryFilter(
+                type = current.type,
+                code = null,
+                displayText = "Type ${current.type}"
+            )
+            // If filtered by Type only, go back to All
+            current.type != null -> TextTypesParser.CategoryFilter.all()
+            // Already at top level, do nothing
+            else -> return false
+        }
+        setCategoryFilter(parent)
+        return true
+    }
+
+    fun toggleSort() {
+        _sortAscending.value = !_sortAscending.value
+    }
+
+    fun toggleFavoritesFilter() {
+        _showOnlyFavorites.value = !_showOnlyFavorites.value
+    }
+
+    fun toggleFavorite(rid: Long) {
+        favoritesManager.toggleFavorite(rid)
+        favoritesVersion.value++
+    }
+
+    /**
+     * Go to the page containing row (of the whole result list)
+     * Returns the row's position on that page
+     */
+    fun jumpToRow(row: Int): Int {
+        val current = state.value ?: return 0
+        if (current.totalPages <= 1) return row
+        goToPage(row / ITEMS_PER_PAGE)
+        return row % ITEMS_PER_PAGE
+    }
+
+    fun firstPage() = goToPage(0)
+
+    fun previousPage() = goToPage(page.value - 1)
+
+    fun nextPage() = goToPage(page.value + 1)
+
+    fun lastPage() = goToPage((state.value?.totalPages ?: 1) - 1)
+
+    private fun goToPage(target: Int) {
+        val totalPages = state.value?.totalPages ?: 1
+        if (target < 0 || target >= totalPages || target == page.value) return
+        page.value = target
+        savePaginationState()
+    }
+
+    private fun resetPaging() {
+        page.value = 0
+        savePaginationState()
+    }
+
+    /**
+     * RIDs of the whole current result in list order (every page, no advertisement entries)
+     * - the reader's previous/next text order. Null until the list is computed (snapshot).
+     */
+    fun readingOrder(): LongArray? {
+        val result = resultRows ?: return null
+        val rows = result.rows()
+        val rids = LongArray(rows.size)
+        var count = 0
+        rows.forEach { slot ->
+            val rid = result.index.entity(slot).rid
+            if (rid >= 0) rids[count++] = rid
+        }
+        return rids.copyOf(count)
+    }
+
+    /**
+     * Load text with content (rows from the cold start snapshot have none)
+     */
+    suspend fun getText(rid: Long): TextEntity? = textRepository.getText(rid)
+
+    /**
+     * Keep a text the list already has with content for the reader, which loads by RID
+     */
+    fun cacheText(text: TextEntity) = textRepository.put(text)
+
+    /**
+     * Content around the search match of a row, computed when the row is first shown
+     * Null for title-only matches, rows without search and before the search index exists
+     */
+    fun snippetFor(row: TextRow): SearchTextIndex.Snippet? {
+        if (row.searchTerm.isBlank() || row.text.rid < 0) return null
+
+        val key = row.text.rid to row.searchTerm
+        snippets.get(key)?.let { return it.takeIf { snippet -> snippet !== noSnippet } }
+
+        val index = listIndex ?: return null
+        val searchTexts = index.searchTextsIfBuilt ?: return null
+        val slot = index.slotOf(row.text.rid)
+        if (slot < 0) return null
+
+        val snippet = searchTexts.snippet(slot, row.searchTerm.trim(), SNIPPET_RADIUS)
+        snippets.put(key, snippet ?: noSnippet)
+        return snippet
+    }
+
+    /**
+     * Titles with a word sequence starting with query (diacritics ignored)
+     */
+    private fun suggestTitles(query: String): List<TextEntity> {
+        if (query.isBlank()) return emptyList()
+        val index = listIndex ?: return emptyList()
+        return index.titlePrefixes.suggest(query, SUGGESTION_LIMIT).map { index.entity(it) }
+    }
+
+    // --- Pipeline (Dispatchers.Default) ---
+
+    private suspend fun compute(texts: List<TextEntity>, query: Query, page: Int): TextListState {
+        val index = indexFor(texts)
+        val filtered = filterStage(index, query)
+
+        // Search results by relevance (sorted holds the rows up to the current page only),
+        // everything else alphabetically with letter jumps
+        val ranked = query.searchTerm.isNotBlank()
+        val sorted = if (ranked) {
+            rankStage(filtered, fuzzyResult, index, query, page)
+        } else {
+            sortStage(filtered, fuzzyResult, index, query)
+        }
+        val rowCount = if (ranked) filtered.cardinality() + fuzzyResult.size else sorted.size
+        val rows = if (ranked) rankedRows(filtered, fuzzyResult, index, query) else ({ sorted })
+        val letterIndex = if (ranked) LetterIndex.EMPTY else letterStage(sorted, index, query)
+
+        // Alphabet buttons only for long alphabetical lists
+        val showAlphabet = !ranked && sorted.size > PAGINATION_THRESHOLD
+        val groups = if (showAlphabet) groupStage(sorted, filtered, index, letterIndex) else emptyList()
+
+        currentCoroutineContext().ensureActive()
+
+        // Check if we need pagination
+        val totalPages: Int
+        val pageStart: Int
+        val pageSlots: List<Int>
+        if (rowCount > ITEMS_PER_PAGE_THRESHOLD) {
+            totalPages = (rowCount + ITEMS_PER_PAGE - 1) / ITEMS_PER_PAGE
+            pageStart = page * ITEMS_PER_PAGE
+            val endIndex = minOf(pageStart + ITEMS_PER_PAGE, sorted.size)
+            pageSlots = if (pageStart < sorted.size) {
+                sorted.slice(pageStart until endIndex)
+            } else {
+                emptyList()
+            }
+        } else {
+            totalPages = 1
+            pageStart = 0
+            pageSlots = sorted.asList()
+        }
+
+        // Favorite state is part of the row, so a toggle changes exactly one row
+        val favoriteRids = favoritesManager.getFavorites()
+        val pageItems = pageSlots.map { slot ->
+            val text = index.entity(slot)
+            TextRow(text, favoriteRids.contains(text.rid), query.searchTerm)
+        }
+
+        val state = TextListState(
+            pageItems = pageItems,
+            facets = index.facets,
+            alphabetGroups = groups,
+            showAlphabet = showAlphabet,
+            letterIndex = letterIndex,
+            page = page,
+            pageStart = pageStart,
+            totalPages = totalPages,
+            searchTerm = query.searchTerm
+        )
+
+        resultRows = ResultRows(index, rows)
+
+        // Search isn't restored on launch, so only unsearched lists are worth a snapshot
+        if (query.searchTerm.isEmpty()) {
+            snapshots.value = TextListSnapshot(query.filter, query.sortAscending, query.showOnlyFavorites, state)
+        }
+        return state
+    }
+
+    /**
+     * Sort keys, letters and facets - rebuilt per text list, normalizing only new titles
+     */
+    private suspend fun indexFor(texts: List<TextEntity>): TextListIndex {
+        listIndex?.let { if (it.source === texts) return it }
+        return TextListIndex.build(texts, listIndex).also { listIndex = it }
+    }
+
+    /**
+     * Search term (refined incrementally by [searchEngine]) and category facet
+     * Fuzzy title matches for few hits go to [fuzzyResult]
+     * Search results are shared through [SearchResultCache] while the dataset version holds
+     */
+    private suspend fun filterStage(index: TextListIndex, query: Query): BitSet {
+        val key = query.searchTerm to query.filter
+        if (index === filterSource && key == filterQuery) return filterResult
+
+        val term = SearchResultCache.normalize(query.searchTerm)
+        val version = DataImporter.datasetVersion(getApplication())
+        val cacheKey = SearchResultCache.Key(term, query.filter.type, query.filter.code)
+        val cached = if (term.isNotEmpty()) SearchResultCache.get(version, cacheKey, index.size) else null
+
+        val result: BitSet
+        val fuzzy: IntArray
+        if (cached != null) {
+            result = cached.hits
+            fuzzy = cached.fuzzy
+        } else {
+            val category = index.facets.category(query.filter)
+            result = category.clone() as BitSet
+            result.and(searchEngine.search(index, term))
+
+            // Few or no hits - probably a misspelled title, add closest titles (best first)
+            fuzzy = if (term.isNotEmpty() && result.cardinality() < FUZZY_FALLBACK_HITS) {
+                category.andNot(result)
+                index.fuzzyTitles.search(term, category)
+            } else {
+                IntArray(0)
+            }
+
+            if (term.isNotEmpty()) {
+                SearchResultCache.put(version, cacheKey, SearchResultCache.Result(result, fuzzy, index.size))
+            }
+        }
+
+        filterSource = index
+        filterQuery = key
+        filterResult = result
+        fuzzyResult = fuzzy
+        return result
+    }
+
+    /**
+     * Sort, favorites to top and advertisement entries
+     */
+    private fun sortStage(filtered: BitSet, fuzzy: IntArray, index: TextListIndex, query: Query): IntArray {
+        // Favorites version only matters while favorites are sorted to the top
+        val key = query.copy(favoritesVersion = if (query.showOnlyFavorites) query.favoritesVersion else 0)
+        if (filtered === sortSource && key == sortQuery) return sortResult
+
+        // Sort alphabetically by precomputed rank (diacritics sorted under base letters)
+        // If favorites filter is ON, sort favorites to top (all texts still visible)
+        val pinned = if (query.showOnlyFavorites) index.slotsOf(favoritesManager.getFavorites()) else null
+        var sorted = index.sort(filtered, query.sortAscending, pinned)
+
+        // Typo-tolerant matches after the exact ones, already ordered by distance
+        if (fuzzy.isNotEmpty()) sorted += fuzzy
+
+        // Add synthetic advertisement entries at the top (always shown, regardless of filters)
+        // Only add if search term is empty (so user can search without seeing ads)
+        if (query.searchTerm.isEmpty()) {
+            val adSlots = AdvertisementTexts.entries.map { index.slotOf(it.rid) }.filter { it >= 0 }
+            sorted = adSlots.toIntArray() + sorted
+        }
+
+        sortSource = filtered
+        sortQuery = key
+        sortResult = sorted
+        return sorted
+    }
+
+    /**
+     * Search hits by relevance, favorites to top in favorites mode, fuzzy title matches last
+     * Scores are kept per hit set, so a page change only re-selects the top rows
+     */
+    private suspend fun rankStage(
+        filtered: BitSet,
+        fuzzy: IntArray,
+        index: TextListIndex,
+        query: Query,
+        page: Int
+    ): IntArray {
+        // Same term the hits were searched for (filterStage)
+        val term = SearchResultCache.normalize(query.searchTerm)
+        val scores = if (filtered === scoresSource && term == scoresTerm) {
+            scoresResult
+        } else {
+            RelevanceScores.compute(index, index.searchTexts(), filtered, term).also {
+                scoresSource = filtered
+                scoresTerm = term
+                scoresResult = it
+            }
+        } ?: return IntArray(0)
+
+        val pinned = if (query.showOnlyFavorites) index.slotsOf(favoritesManager.getFavorites()) else null
+        val pageEnd = (page + 1) * ITEMS_PER_PAGE
+        val top = scores.top(filtered, pageEnd, pinned)
+        return if (top.size < pageEnd && fuzzy.isNotEmpty()) top + fuzzy else top
+    }
+
+    /**
+     * Every ranked row (rankStage order), ordered when first asked for
+     * Uses the scores rankStage just computed for the same hits
+     */
+    private fun rankedRows(filtered: BitSet, fuzzy: IntArray, index: TextListIndex, query: Query): () -> IntArray {
+        val scores = scoresResult?.takeIf { scoresSource === filtered } ?: return { fuzzy }
+        val pinned = if (query.showOnlyFavorites) index.slotsOf(favoritesManager.getFavorites()) else null
+        val hitCount = filtered.cardinality()
+        return { scores.top(filtered, hitCount, pinned) + fuzzy }
+    }
+
+    /**
+     * Letter -> first row table, rows of pinned favorites only count for letters not found below them
+     */
+    private fun letterStage(sorted: IntArray, index: TextListIndex, query: Query): LetterIndex {
+        if (sorted === lettersSource) return lettersResult
+
+        val firstRow = if (query.showOnlyFavorites) {
+            val favorites = index.slotsOf(favoritesManager.getFavorites())
+            sorted.indexOfFirst { !favorites.get(it) && index.entity(it).rid >= 0 }.let { if (it < 0) sorted.size else it }
+        } else {
+            0
+        }
+        val result = LetterIndex.build(sorted, index::letter, firstRow)
+
+        lettersSource = sorted
+        lettersResult = result
+        return result
+    }
+
+    /**
+     * Create smart alphabet groups - combine letters with < 20 texts until group has >= 30
+     */
+    private fun groupStage(
+        sorted: IntArray,
+        filtered: BitSet,
+        index: TextListIndex,
+        letterIndex: LetterIndex
+    ): List<AlphabetGroup> {
+        if (sorted === groupsSource) return groupsResult
+
+        // Count texts for each letter (popcount of letter facet within filtered texts)
+        val letterCounts = IntArray(26) { index.facets.letterCount('A' + it, filtered) }
+
+        // Create groups
+        val groups = mutableListOf<AlphabetGroup>()
+        var currentGroup = mutableListOf<Char>()
+        var currentCount = 0
+
+        ('A'..'Z').forEach { letter ->
+            val count = letterCounts[letter - 'A']
+            if (count == 0) return@forEach
+
+            if (count >= 20) {
+                // If letter has >= 20 texts, finalize current group first
+                if (currentGroup.isNotEmpty()) {
+                    groups.add(AlphabetGroup(currentGroup.toList(), currentCount))
+                    currentGroup = mutableListOf()
+                    currentCount = 0
+                }
+                // Add this letter as separate group
+                groups.add(AlphabetGroup(listOf(letter), count))
+            } else {
+                // If letter has < 20 texts, add to current group
+                currentGroup.add(letter)
+                currentCount += count
+
+                // If group has >= 30 texts, finalize it
+                if (currentCount >= 30) {
+                    groups.add(AlphabetGroup(currentGroup.toList(), currentCount))
+                    currentGroup = mutableListOf()
+                    currentCount = 0
+                }
+            }
+        }
+
+        // Add remaining group
+        if (currentGroup.isNotEmpty()) {
+            groups.add(AlphabetGroup(currentGroup.toList(), currentCount))
+        }
+
+        // Each group jumps to the first row of any of its letters
+        val jumpGroups = groups.map { group ->
+            val firstRow = group.letters.map { letterIndex.rowOf(it) }.filter { it >= 0 }.minOrNull() ?: 0
+            group.copy(firstRow = firstRow)
+        }
+
+        groupsSource = sorted
+        groupsResult = jumpGroups
+        return jumpGroups
+    }
+
+    // --- Persistence ---
+
+    /**
+     * Cold start list from the snapshot file, if it was prepared for the current inputs
+     * Read on the main thread on purpose - it is small and must be there for the first frame
+     */
+    private fun restoreSnapshot(): TextListState? {
+        val snapshot = TextListSnapshot.read(snapshotFile) ?: return null
+        if (snapshot.filter != _categoryFilter.value ||
+            snapshot.sortAscending != _sortAscending.value ||
+            snapshot.showOnlyFavorites != _showOnlyFavorites.value
+        ) {
+            return null
+        }
+
+        val state = snapshot.toState(favoritesManager.getFavorites())
+        return if (state.page == page.value) state else null
+    }
+
+    /**
+     * Restore last filter from SharedPreferences
+     */
+    private fun restoreLastFilter(): TextTypesParser.CategoryFilter {
+        val type = if (prefs.contains(PREF_LAST_FILTER_TYPE)) {
+            prefs.getInt(PREF_LAST_FILTER_TYPE, -1).takeIf { it != -1 }
+        } else null
+
+        val code = prefs.getString(PREF_LAST_FILTER_CODE, null)
+        val display = prefs.getString(PREF_LAST_FILTER_DISPLAY, "All") ?: "All"
+
+        return TextTypesParser.CategoryFilter(type, code, display)
+    }
+
+    /**
+     * Save current filter to SharedPreferences
+     */
+    private fun saveLastFilter() {
+        val filter = _categoryFilter.value
+        prefs.edit().apply {
+            filter.type?.let { putInt(PREF_LAST_FILTER_TYPE, it) } ?: remove(PREF_LAST_FILTER_TYPE)
+            filter.code?.let { putString(PREF_LAST_FILTER_CODE, it) } ?: remove(PREF_LAST_FILTER_CODE)
+            putString(PREF_LAST_FILTER_DISPLAY, filter.displayText)
+            apply()
+        }
+    }
+
+    /**
+     * Save pagination state to SharedPreferences
+     */
+    private fun savePaginationState() {
+        prefs.edit().apply {
+            // Alphabet groups are not persisted (same as before), only the page
+            remove(PREF_LAST_ALPHABET_FILTER)
+            putInt(PREF_LAST_PAGE, page.value)
+            apply()
+        }
+    }
+}
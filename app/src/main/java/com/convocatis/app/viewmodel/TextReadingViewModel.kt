@@ -0,0 +1,162 @@
+package com.convocatis.app.viewmodel
+
+import android.app.Application
+import android.util.Log
+import androidx.lifecycle.AndroidViewModel
+import androidx.lifecycle.SavedStateHandle
+import androidx.lifecycle.viewModelScope
+import com.convocatis.app.ConvocatisApplication
+import com.convocatis.app.utils.PageRenderer
+import com.convocatis.app.utils.PreparedText
+import com.convocatis.app.utils.ProgramManager
+import com.convocatis.app.utils.ReadingModel
+import com.convocatis.app.utils.TextPreloader
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.launch
+
+/**
+ * Reading state of one text, kept across configuration changes
+ *
+ * The reading model (page plan, loaded referenced texts), search match pages and
+ * the page renderer with its rendered pages live here, so rotating the device or
+ * resizing the window only recreates views - nothing is parsed or rendered again.
+ * Precomputed layouts are dropped by [PageRenderer.updateTextMetrics] when the page
+ * width or font scale changed.
+ *
+ * The text to read comes from the fragment arguments (SavedStateHandle), with the
+ * reading order it was opened from (the list rows) - the previous and next text of
+ * that order are prepared by [TextPreloader] once this one is shown.
+ */
+class TextReadingViewModel(
+    application: Application,
+    savedStateHandle: SavedStateHandle
+) : AndroidViewModel(application) {
+
+    companion object {
+        private const val TAG = "TextReadingViewModel"
+
+        // Fragment argument keys
+        const val ARG_RID = "rid"
+        const val ARG_LANGUAGE = "language_code"
+        const val ARG_SEARCH_TERM = "search_term"
+        const val ARG_SEQUENCE = "sequence"
+        const val ARG_PROGRAM_ID = "program_id"
+    }
+
+    private val repository = ConvocatisApplication.getInstance().textRepository
+
+    val rid: Long = savedStateHandle[ARG_RID] ?: 0L
+    val languageCode: String = savedStateHandle[ARG_LANGUAGE] ?: ""
+    val searchTerm: String? = savedStateHandle.get<String>(ARG_SEARCH_TERM)?.takeIf { it.isNotBlank() }
+
+    // Reading order the text was opened from (RIDs), empty if none
+    val sequence: LongArray = savedStateHandle[ARG_SEQUENCE] ?: LongArray(0)
+    private val sequenceIndex = sequence.indexOf(rid)
+
+    // Program read as one continuous text instead of a single text, -1 if none
+    val programId: Long = savedStateHandle[ARG_PROGRAM_ID] ?: -1L
+    private val programManager by lazy { ProgramManager(getApplication()) }
+
+    private var loading: Deferred<PreparedText?>? = null
+    private var loaded: PreparedText? = null
+
+    // Replaced by a neighbour of the reading order - its preloaded texts are still wanted
+    var handedOver = false
+
+    /**
+     * Title if it is known without loading, for showing it before loading finished
+     */
+    fun cachedTitle(): String? {
+        if (programId >= 0) return programManager.getProgram(programId)?.name
+        return repository.getCached(rid)?.title
+    }
+
+    /**
+     * Language of a text of the reading order, as far as known without loading it
+     */
+    fun languageOf(rid: Long): String = repository.getCached(rid)?.languageCode ?: languageCode
+
+    /**
+     * Previous / next text of the reading order, null at its ends
+     */
+    val previousRid: Long? get() = sequence.getOrNull(sequenceIndex - 1)
+    val nextRid: Long? get() = sequence.getOrNull(sequenceIndex + 1)?.takeIf { sequenceIndex >= 0 }
+
+    /**
+     * Reader for the text, loaded once per ViewModel - null if the text doesn't exist
+     * or can't be loaded. Must be called from the main thread.
+     */
+    suspend fun reader(): PreparedText? {
+        val deferred = loading ?: viewModelScope.async { load() }.also { loading = it }
+        return deferred.await()
+    }
+
+    private suspend fun load(): PreparedText? {
+        if (programId >= 0) return loadProgram()
+
+        // Swiped to from a neighbour - usually prepared already
+        TextPreloader.take(rid, searchTerm)?.let { prepared ->
+            Log.d(TAG, "Text $rid was preloaded")
+            return prepared.also { loaded = it }
+        }
+
+        return try {
+            val text = repository.getText(rid) ?: return null
+            PreparedText.prepare(getApplication(), repository, text, searchTerm).also { loaded = it }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.e(TAG, "Error loading text $rid ($languageCode)", e)
+            null
+        }
+    }
+
+    /**
+     * Program with everything warmed up - usually prepared while its contents were shown
+     * (if that is still running, it is awaited rather than prepared a second time)
+     */
+    private suspend fun loadProgram(): PreparedText? {
+        val program = programManager.getProgram(programId) ?: return null
+        return try {
+            val prepared = TextPreloader.takeProgram(program)
+                ?: PreparedText.prepareProgram(getApplication(), repository, program)
+            prepared.warmUp()
+            prepared.also { loaded = it }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            Log.e(TAG, "Error loading program $programId", e)
+            null
+        }
+    }
+
+    /**
+     * Load referenced texts of the section of position and its neighbours, so switching
+     * to the next or previous header never waits for the database
+     */
+    fun prefetchSections(model: ReadingModel, position: Int) {
+        val section = model.sectionOf(position)
+        viewModelScope.launch {
+            model.materializeSection(section)
+            model.materializeSection(section + 1)
+            model.materializeSection(section - 1)
+        }
+    }
+
+    /**
+     * Prepare the previous and next text in the background (next first)
+     */
+    fun preloadNeighbours() {
+        val rids = listOfNotNull(nextRid, previousRid)
+        if (rids.isNotEmpty()) TextPreloader.preload(getApplication(), repository, rids, searchTerm)
+    }
+
+    override fun onCleared() {
+        loaded?.close()
+        // Reader closed - nothing it preloaded will be opened
+        if (!handedOver) TextPreloader.clear()
+        super.onCleared()
+    }
+}